@@ -8,6 +8,10 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
@@ -36,6 +40,8 @@ public class CommandLineApp {
     private static final int RELATIVE_AREA_CALCULATION_MODE = 0;
     private static final int ABSOLUTE_AREA_CALCULATION_MODE = 1;
 
+    private static final int PAGE_LOOK_AHEAD = 2;
+
 
     private Appendable defaultOutput;
 
@@ -43,6 +49,8 @@ public class CommandLineApp {
     private List<Integer> pages;
     private OutputFormat outputFormat;
     private String password;
+    private Long maxMemoryBytes;
+    private int threads;
     private TableExtractor tableExtractor;
 
     public CommandLineApp(Appendable defaultOutput, CommandLine line) throws ParseException {
@@ -51,6 +59,8 @@ public class CommandLineApp {
         this.pages = CommandLineApp.whichPages(line);
         this.outputFormat = CommandLineApp.whichOutputFormat(line);
         this.tableExtractor = CommandLineApp.createExtractor(line);
+        this.maxMemoryBytes = CommandLineApp.whichMaxMemory(line);
+        this.threads = CommandLineApp.whichThreads(line);
 
         if (line.hasOption('s')) {
             this.password = line.getOptionValue('s');
@@ -73,10 +83,18 @@ public class CommandLineApp {
                 System.exit(0);
             }
 
+            if (line.hasOption("worker")) {
+                new CommandLineWorker(System.in, System.out).run();
+                System.exit(0);
+            }
+
             new CommandLineApp(System.out, line).extractTables(line);
         } catch (ParseException exp) {
             System.err.println("Error: " + exp.getMessage());
             System.exit(1);
+        } catch (IOException exp) {
+            System.err.println("Error: " + exp.getMessage());
+            System.exit(1);
         }
         System.exit(0);
     }
@@ -109,9 +127,38 @@ public class CommandLineApp {
     public void extractDirectoryTables(CommandLine line, File pdfDirectory) throws ParseException {
         File[] pdfs = pdfDirectory.listFiles((dir, name) -> name.endsWith(".pdf"));
 
-        for (File pdfFile : pdfs) {
-            File outputFile = new File(getOutputFilename(pdfFile));
-            extractFileInto(pdfFile, outputFile);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> extractions = new ArrayList<>(pdfs.length);
+            for (File pdfFile : pdfs) {
+                // the extractors are not thread-safe, every file gets its own
+                CommandLineApp fileApp = new CommandLineApp(defaultOutput, line);
+                File outputFile = new File(getOutputFilename(pdfFile));
+                extractions.add(executor.submit(() -> {
+                    fileApp.extractFileInto(pdfFile, outputFile);
+                    return null;
+                }));
+            }
+
+            // a file that cannot be extracted doesn't stop the others
+            List<String> failures = new ArrayList<>();
+            for (int i = 0; i < pdfs.length; i++) {
+                try {
+                    extractions.get(i).get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    failures.add(pdfs[i].getName() + ": " + (cause.getMessage() != null ? cause.getMessage() : cause));
+                }
+            }
+            if (!failures.isEmpty()) {
+                throw new ParseException(String.format("Could not extract %d of %d files\n%s",
+                        failures.size(), pdfs.length, Utils.join("\n", failures.toArray(new String[0]))));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ParseException("Interrupted while extracting " + pdfDirectory);
+        } finally {
+            executor.shutdownNow();
         }
     }
 
@@ -140,40 +187,20 @@ public class CommandLineApp {
                 try {
                     bufferedWriter.close();
                 } catch (IOException e) {
-                    System.out.println("Error in closing the BufferedWriter" + e);
+                    System.err.println("Error in closing the BufferedWriter" + e);
                 }
             }
         }
     }
 
     private void extractFile(File pdfFile, Appendable outFile) throws ParseException {
-        PDDocument pdfDocument = null;
+        ObjectExtractor extractor = null;
         try {
-            pdfDocument = this.password == null ? PDDocument.load(pdfFile) : PDDocument.load(pdfFile, this.password);
-            PageIterator pageIterator = getPageIterator(pdfDocument);
+            extractor = loadExtractor(pdfFile);
             List<Table> tables = new ArrayList<>();
-
-            while (pageIterator.hasNext()) {
-                Page page = pageIterator.next();
-
-                if (tableExtractor.verticalRulingPositions != null) {
-                    for (Float verticalRulingPosition : tableExtractor.verticalRulingPositions) {
-                        page.addRuling(new Ruling(0, verticalRulingPosition, 0.0f, (float) page.getHeight()));
-                    }
-                }
-
-                if (pageAreas != null) {
-                    for (Pair<Integer, Rectangle> areaPair : pageAreas) {
-                        Rectangle area = areaPair.getRight();
-                        if (areaPair.getLeft() == RELATIVE_AREA_CALCULATION_MODE) {
-                            area = new Rectangle((float) (area.getTop() / 100 * page.getHeight()),
-                                    (float) (area.getLeft() / 100 * page.getWidth()), (float) (area.getWidth() / 100 * page.getWidth()),
-                                    (float) (area.getHeight() / 100 * page.getHeight()));
-                        }
-                        tables.addAll(tableExtractor.extractTables(page.getArea(area)));
-                    }
-                } else {
-                    tables.addAll(tableExtractor.extractTables(page));
+            try (PrefetchingPageIterator pageIterator = getPageIterator(extractor)) {
+                while (pageIterator.hasNext()) {
+                    extractPageTables(pageIterator.nextPage(), tables);
                 }
             }
             writeTables(tables, outFile);
@@ -181,20 +208,55 @@ public class CommandLineApp {
             throw new ParseException(e.getMessage());
         } finally {
             try {
-                if (pdfDocument != null) {
-                    pdfDocument.close();
+                if (extractor != null) {
+                    extractor.close();
                 }
             } catch (IOException e) {
-                System.out.println("Error in closing pdf document" + e);
+                System.err.println("Error in closing pdf document" + e);
             }
         }
     }
 
-    private PageIterator getPageIterator(PDDocument pdfDocument) throws IOException {
-        ObjectExtractor extractor = new ObjectExtractor(pdfDocument);
+    private void extractPageTables(Page page, List<Table> tables) {
+        if (tableExtractor.verticalRulingPositions != null) {
+            for (Float verticalRulingPosition : tableExtractor.verticalRulingPositions) {
+                page.addRuling(new Ruling(0, verticalRulingPosition, 0.0f, (float) page.getHeight()));
+            }
+        }
+
+        if (pageAreas != null) {
+            List<Rectangle> areas = new ArrayList<>(pageAreas.size());
+            for (Pair<Integer, Rectangle> areaPair : pageAreas) {
+                Rectangle area = areaPair.getRight();
+                if (areaPair.getLeft() == RELATIVE_AREA_CALCULATION_MODE) {
+                    area = new Rectangle((float) (area.getTop() / 100 * page.getHeight()),
+                            (float) (area.getLeft() / 100 * page.getWidth()), (float) (area.getWidth() / 100 * page.getWidth()),
+                            (float) (area.getHeight() / 100 * page.getHeight()));
+                }
+                areas.add(area);
+            }
+            for (Page area : page.getAreas(areas)) {
+                tables.addAll(tableExtractor.extractTables(area));
+            }
+        } else {
+            tables.addAll(tableExtractor.extractTables(page));
+        }
+    }
+
+    private ObjectExtractor loadExtractor(File pdfFile) throws IOException {
+        if (maxMemoryBytes != null) {
+            return ObjectExtractor.load(pdfFile, this.password, maxMemoryBytes);
+        }
+        PDDocument pdfDocument = this.password == null ? PDDocument.load(pdfFile) : PDDocument.load(pdfFile, this.password);
+        return new ObjectExtractor(pdfDocument);
+    }
+
+    private PrefetchingPageIterator getPageIterator(ObjectExtractor extractor) {
+        // guessing renders the page, which must not happen while the next page is extracted from the same document
+        int lookAhead = tableExtractor.guess ? 0 : PAGE_LOOK_AHEAD;
         return (pages == null) ?
-                new PageIterator(extractor, extractor.getPages()) :
-                new PageIterator(extractor, pages);
+                new PrefetchingPageIterator(extractor, extractor.getPages(), lookAhead) :
+                new PrefetchingPageIterator(extractor, pages, lookAhead);
     }
 
     // CommandLine parsing methods
@@ -243,6 +305,38 @@ public class CommandLineApp {
         return Utils.parsePagesOption(pagesOption);
     }
 
+    private static Long whichMaxMemory(CommandLine line) throws ParseException {
+        if (!line.hasOption('m')) {
+            return null;
+        }
+
+        try {
+            long megabytes = Long.parseLong(line.getOptionValue('m'));
+            if (megabytes < 0) {
+                throw new ParseException("max-memory must not be negative");
+            }
+            return megabytes * 1024 * 1024;
+        } catch (NumberFormatException e) {
+            throw new ParseException("Wrong number syntax");
+        }
+    }
+
+    private static int whichThreads(CommandLine line) throws ParseException {
+        if (!line.hasOption("threads")) {
+            return 1;
+        }
+
+        try {
+            int threads = Integer.parseInt(line.getOptionValue("threads"));
+            if (threads < 1) {
+                throw new ParseException("threads must be at least 1");
+            }
+            return threads;
+        } catch (NumberFormatException e) {
+            throw new ParseException("Wrong number syntax");
+        }
+    }
+
     private static ExtractionMethod whichExtractionMethod(CommandLine line) {
         // -r/--spreadsheet [deprecated; use -l] or -l/--lattice
         if (line.hasOption('r') || line.hasOption('l')) {
@@ -306,6 +400,12 @@ public class CommandLineApp {
         o.addOption("t", "stream", false, "Force PDF to be extracted using stream-mode extraction (if there are no ruling lines separating each cell)");
         o.addOption("i", "silent", false, "Suppress all stderr output.");
         o.addOption("u", "use-line-returns", false, "Use embedded line returns in cells. (Only in spreadsheet mode.)");
+        o.addOption(Option.builder()
+                .longOpt("worker")
+                .desc("Keep running and answer extraction requests read from STDIN, one JSON object per line "
+                        + "whose members are the long options above plus \"file\" and an optional \"id\". "
+                        + "Every request gets one line of JSON on STDOUT.")
+                .build());
 
         o.addOption(Option.builder("b")
                 .longOpt("batch")
@@ -313,6 +413,12 @@ public class CommandLineApp {
                 .hasArg()
                 .argName("DIRECTORY")
                 .build());
+        o.addOption(Option.builder()
+                .longOpt("threads")
+                .desc("Number of files converted concurrently in batch mode. Default: 1")
+                .hasArg()
+                .argName("THREADS")
+                .build());
         o.addOption(Option.builder("o")
                 .longOpt("outfile")
                 .desc("Write output to <file> instead of STDOUT. Default: -")
@@ -348,6 +454,13 @@ public class CommandLineApp {
                 .hasArg()
                 .argName("AREA")
                 .build());
+        o.addOption(Option.builder("m")
+                .longOpt("max-memory")
+                .desc("Heap used to buffer each PDF, in megabytes. The rest is kept in a temporary file "
+                        + "and cached page resources are released after each page. Default is unbounded")
+                .hasArg()
+                .argName("MEGABYTES")
+                .build());
         o.addOption(Option.builder("p")
                 .longOpt("pages")
                 .desc("Comma separated list of ranges, or all. Examples: --pages 1-3,5-7, --pages 3 or --pages all. Default is --pages 1")
@@ -414,8 +527,7 @@ public class CommandLineApp {
                 List<Rectangle> guesses = detector.detect(page);
                 List<Table> tables = new ArrayList<>();
 
-                for (Rectangle guessRect : guesses) {
-                    Page guess = page.getArea(guessRect);
+                for (Page guess : page.getAreas(guesses)) {
                     tables.addAll(basicExtractor.extract(guess));
                 }
                 return tables;
@@ -0,0 +1,126 @@
+package technology.tabula;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.ParseException;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/**
+ * Runs {@link CommandLineApp} for many requests in the same JVM, so that wrappers don't pay for the JVM startup
+ * and the loading of PDFBox on every document.
+ * <p>
+ * Every input line is a JSON request whose members are the long options of the command line,
+ * plus the {@code file} to extract and an optional {@code id} that is copied to the response, e.g.
+ * <pre>{"id": 1, "file": "report.pdf", "pages": "1-3", "area": ["%0,0,100,50"], "lattice": true, "format": "JSON"}</pre>
+ * Every request is answered by one output line of JSON holding the {@code id} and either the {@code tables}
+ * (JSON format), the CSV or TSV {@code output} (other formats) or the {@code error} message.
+ * The options that would write anywhere else than the response, or run more than one document, are rejected.
+ * <p>
+ * An error of the JVM itself, like running out of memory, ends the worker: its state can't be trusted anymore.
+ */
+class CommandLineWorker {
+
+    private static final String[] REJECTED_OPTIONS = {"outfile", "batch", "threads", "worker"};
+
+    private final BufferedReader input;
+    private final BufferedWriter output;
+    private final Gson gson = new GsonBuilder().disableHtmlEscaping().create();
+
+    CommandLineWorker(InputStream input, OutputStream output) {
+        this.input = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        this.output = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Answers the requests until the end of the input.
+     */
+    void run() throws IOException {
+        String request;
+        while ((request = input.readLine()) != null) {
+            if (request.trim().isEmpty()) {
+                continue;
+            }
+            output.write(gson.toJson(process(request)));
+            output.newLine();
+            output.flush();
+        }
+    }
+
+    // - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - //
+    JsonObject process(String request) {
+        JsonObject response = new JsonObject();
+        try {
+            JsonObject options = JsonParser.parseString(request).getAsJsonObject();
+            if (options.has("id")) {
+                response.add("id", options.get("id"));
+            }
+
+            CommandLine line = new DefaultParser().parse(CommandLineApp.buildOptions(), toArguments(options));
+            for (String option : REJECTED_OPTIONS) {
+                if (line.hasOption(option)) {
+                    throw new ParseException("Option " + option + " is not supported by the worker");
+                }
+            }
+            StringBuilder tables = new StringBuilder();
+            new CommandLineApp(tables, line).extractTables(line);
+
+            if ("JSON".equals(line.getOptionValue('f')) && tables.length() > 0) {
+                response.add("tables", JsonParser.parseString(tables.toString()));
+            } else {
+                response.addProperty("output", tables.toString());
+            }
+        } catch (ParseException e) {
+            response.addProperty("error", e.getMessage());
+        } catch (Exception | LinkageError | AssertionError e) {
+            // a malformed request or a broken document must not stop the worker, nor a font that PDFBox
+            // fails to load or to parse; a VirtualMachineError ends it, for its wrapper to start a new one
+            response.addProperty("error", e.getMessage() != null ? e.getMessage() : e.toString());
+        }
+        return response;
+    }
+
+    private static String[] toArguments(JsonObject options) {
+        List<String> arguments = new ArrayList<>();
+        for (Map.Entry<String, JsonElement> option : options.entrySet()) {
+            String name = option.getKey();
+            JsonElement value = option.getValue();
+            if (name.equals("id") || name.equals("file")) {
+                continue;
+            }
+
+            if (value.isJsonArray()) {
+                for (JsonElement element : value.getAsJsonArray()) {
+                    arguments.add("--" + name + "=" + element.getAsString());
+                }
+            } else if (value.isJsonPrimitive() && value.getAsJsonPrimitive().isBoolean()) {
+                if (value.getAsBoolean()) {
+                    arguments.add("--" + name);
+                }
+            } else {
+                arguments.add("--" + name + "=" + value.getAsString());
+            }
+        }
+        if (options.has("file")) {
+            arguments.add(options.get("file").getAsString());
+        }
+        return arguments.toArray(new String[0]);
+    }
+
+}
@@ -0,0 +1,146 @@
+package technology.tabula;
+
+import java.io.IOException;
+
+import org.apache.fontbox.ttf.TrueTypeFont;
+import org.apache.fontbox.util.BoundingBox;
+import org.apache.pdfbox.pdmodel.font.PDCIDFont;
+import org.apache.pdfbox.pdmodel.font.PDCIDFontType2;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDFontDescriptor;
+import org.apache.pdfbox.pdmodel.font.PDTrueTypeFont;
+import org.apache.pdfbox.pdmodel.font.PDType0Font;
+import org.apache.pdfbox.pdmodel.font.PDType3Font;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The metrics of a font that don't depend on the glyph being shown, in text space.
+ * They are computed once per font of a document, see {@link FontMetricsCache}.
+ */
+final class FontMetrics {
+
+    private static final Logger logger = LoggerFactory.getLogger(FontMetrics.class);
+
+    private final float height;
+    private final float spaceWidth;
+    private final float verticalWidthScale;
+
+    private FontMetrics(float height, float spaceWidth, float verticalWidthScale) {
+        this.height = height;
+        this.spaceWidth = spaceWidth;
+        this.verticalWidthScale = verticalWidthScale;
+    }
+
+    static FontMetrics of(PDFont font) throws IOException {
+        return of(font, computeFontHeight(font));
+    }
+
+    static FontMetrics of(PDFont font, float height) throws IOException {
+        return new FontMetrics(height, computeSpaceWidth(font), computeVerticalWidthScale(font));
+    }
+
+    // - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - //
+    /**
+     * The height of the glyphs, as computed by PDFBox's {@code PDFTextStripper} with its fixes for broken bounding boxes.
+     */
+    float getHeight() {
+        return height;
+    }
+
+    float getSpaceWidth() {
+        return spaceWidth;
+    }
+
+    /**
+     * The factor to apply to the glyph widths of a vertical font, as some TrueType fonts don't have 1000 units per em.
+     */
+    float getVerticalWidthScale() {
+        return verticalWidthScale;
+    }
+
+    // - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - //
+    // ported from PDFTextStripper.computeFontHeight
+    static float computeFontHeight(PDFont font) throws IOException {
+        BoundingBox bbox = font.getBoundingBox();
+        if (bbox.getLowerLeftY() < Short.MIN_VALUE) {
+            // PDFBOX-2158 and PDFBOX-3130
+            // files by Salmat eSolutions / ClibPDF Library
+            bbox.setLowerLeftY(-(bbox.getLowerLeftY() + 65536));
+        }
+        // 1/2 the bbox is used as the height todo: why?
+        float glyphHeight = bbox.getHeight() / 2;
+
+        // sometimes the bbox has very high values, but CapHeight is OK
+        PDFontDescriptor fontDescriptor = font.getFontDescriptor();
+        if (fontDescriptor != null) {
+            float capHeight = fontDescriptor.getCapHeight();
+            if (Float.compare(capHeight, 0) != 0 &&
+                    (capHeight < glyphHeight || Float.compare(glyphHeight, 0) == 0)) {
+                glyphHeight = capHeight;
+            }
+            // PDFBOX-3464, PDFBOX-448:
+            // sometimes even CapHeight has very high value, but Ascent and Descent are ok
+            float ascent = fontDescriptor.getAscent();
+            float descent = fontDescriptor.getDescent();
+            if (ascent > 0 && descent < 0 &&
+                    ((ascent - descent) / 2 < glyphHeight || Float.compare(glyphHeight, 0) == 0)) {
+                glyphHeight = (ascent - descent) / 2;
+            }
+        }
+
+        // transformPoint from glyph space -> text space
+        float height;
+        if (font instanceof PDType3Font) {
+            height = font.getFontMatrix().transformPoint(0, glyphHeight).y;
+        } else {
+            height = glyphHeight / 1000;
+        }
+
+        return height;
+    }
+
+    // ported from LegacyPDFStreamEngine.showGlyph
+    private static float computeSpaceWidth(PDFont font) {
+        float glyphSpaceToTextSpaceFactor = 1 / 1000f;
+        if (font instanceof PDType3Font) {
+            glyphSpaceToTextSpaceFactor = font.getFontMatrix().getScaleX();
+        }
+
+        float spaceWidth = 0;
+        try {
+            // to avoid crash as described in PDFBOX-614
+            spaceWidth = font.getSpaceWidth() * glyphSpaceToTextSpaceFactor;
+        } catch (Throwable exception) {
+            logger.warn("Cannot compute the width of space", exception);
+        }
+        if (spaceWidth == 0) {
+            // the average width appears to be higher than necessary so make it smaller
+            spaceWidth = font.getAverageFontWidth() * glyphSpaceToTextSpaceFactor * .80f;
+        }
+        if (spaceWidth == 0) {
+            spaceWidth = 1.0f;
+        }
+        return spaceWidth;
+    }
+
+    private static float computeVerticalWidthScale(PDFont font) throws IOException {
+        if (!font.isVertical()) {
+            return 1;
+        }
+        TrueTypeFont ttf = null;
+        if (font instanceof PDTrueTypeFont) {
+            ttf = ((PDTrueTypeFont) font).getTrueTypeFont();
+        } else if (font instanceof PDType0Font) {
+            PDCIDFont cidFont = ((PDType0Font) font).getDescendantFont();
+            if (cidFont instanceof PDCIDFontType2) {
+                ttf = ((PDCIDFontType2) cidFont).getTrueTypeFont();
+            }
+        }
+        if (ttf != null && ttf.getUnitsPerEm() != 1000) {
+            return 1000f / ttf.getUnitsPerEm();
+        }
+        return 1;
+    }
+
+}
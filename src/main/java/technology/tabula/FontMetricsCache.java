@@ -0,0 +1,63 @@
+package technology.tabula;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+
+/**
+ * Caches the {@link FontMetrics} and the {@link GlyphCodes} of the fonts of a document, keyed by their COS object so that
+ * they survive the {@code PDFont} instances, which are recreated when PDFBox's resource cache is released.
+ * <p>
+ * The height of a non-embedded standard 14 font without a font descriptor only depends on its name,
+ * so it is also shared between all documents.
+ * <p>
+ * Not thread-safe, like the document it belongs to.
+ */
+class FontMetricsCache {
+
+    private static final Map<String, Float> STANDARD_14_HEIGHTS = new ConcurrentHashMap<>();
+
+    private final Map<COSDictionary, FontMetrics> fontMetrics = new HashMap<>();
+    private final Map<COSDictionary, GlyphCodes> glyphCodes = new HashMap<>();
+
+    FontMetrics get(PDFont font) throws IOException {
+        FontMetrics metrics = fontMetrics.get(font.getCOSObject());
+        if (metrics == null) {
+            metrics = isSharedStandard14(font) ? FontMetrics.of(font, getStandard14Height(font)) : FontMetrics.of(font);
+            fontMetrics.put(font.getCOSObject(), metrics);
+        }
+        return metrics;
+    }
+
+    GlyphCodes getGlyphCodes(PDFont font) {
+        GlyphCodes codes = glyphCodes.get(font.getCOSObject());
+        if (codes == null) {
+            codes = new GlyphCodes();
+            glyphCodes.put(font.getCOSObject(), codes);
+        }
+        return codes;
+    }
+
+    // - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - //
+    private static boolean isSharedStandard14(PDFont font) {
+        // the font descriptor, if any, overrides the metrics of the standard font
+        return font instanceof PDType1Font && font.isStandard14()
+                && !font.getCOSObject().containsKey(COSName.FONT_DESC);
+    }
+
+    private static float getStandard14Height(PDFont font) throws IOException {
+        Float height = STANDARD_14_HEIGHTS.get(font.getName());
+        if (height == null) {
+            height = FontMetrics.computeFontHeight(font);
+            STANDARD_14_HEIGHTS.put(font.getName(), height);
+        }
+        return height;
+    }
+
+}
@@ -0,0 +1,90 @@
+package technology.tabula;
+
+/**
+ * What {@link TextStripper} makes of the text of the glyph codes of a font, worked out the first time a code is seen:
+ * whether the text is printable, the text with a non-breaking space replaced by a space, and whether it is blank.
+ * <p>
+ * The Unicode text of a code is kept with it and compared to the text of every glyph of that code,
+ * as merging a diacritic into a glyph changes its text.
+ * <p>
+ * Not thread-safe, like the {@link FontMetricsCache} that holds it.
+ */
+final class GlyphCodes {
+
+    private static final String NBSP = "\u00A0";
+    // the codes are stored in pages of 256, up to 0xFFFF, the largest code of a CMap in practice
+    private static final int PAGE_BITS = 8;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int MAX_CODE = 0xFFFF;
+
+    private final Glyph[][] pages = new Glyph[(MAX_CODE >> PAGE_BITS) + 1][];
+
+    Glyph get(int code, String unicode) {
+        if (code < 0 || code > MAX_CODE) {
+            return Glyph.of(unicode);
+        }
+
+        Glyph[] page = pages[code >> PAGE_BITS];
+        if (page == null) {
+            page = new Glyph[PAGE_SIZE];
+            pages[code >> PAGE_BITS] = page;
+        }
+        Glyph glyph = page[code & (PAGE_SIZE - 1)];
+        if (glyph == null || !glyph.unicode.equals(unicode)) {
+            glyph = Glyph.of(unicode);
+            page[code & (PAGE_SIZE - 1)] = glyph;
+        }
+        return glyph;
+    }
+
+    // - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - //
+    static final class Glyph {
+
+        private final String unicode;
+        private final String text;
+        private final boolean blank;
+
+        private Glyph(String unicode, String text, boolean blank) {
+            this.unicode = unicode;
+            this.text = text;
+            this.blank = blank;
+        }
+
+        static Glyph of(String unicode) {
+            if (!isPrintable(unicode)) {
+                return new Glyph(unicode, null, false);
+            }
+            String text = unicode.equals(NBSP) ? " " : unicode;
+            return new Glyph(unicode, text, text.trim().isEmpty());
+        }
+
+        boolean isPrintable() {
+            return text != null;
+        }
+
+        /**
+         * @return the text of a printable glyph, with a non-breaking space replaced by a space
+         */
+        String getText() {
+            return text;
+        }
+
+        boolean isBlank() {
+            return blank;
+        }
+
+        private static boolean isPrintable(String s) {
+            char c;
+            Character.UnicodeBlock block;
+            boolean printable = false;
+            for (int i = 0; i < s.length(); i++) {
+                c = s.charAt(i);
+                block = Character.UnicodeBlock.of(c);
+                printable |= !Character.isISOControl(c) && block != null && block != Character.UnicodeBlock.SPECIALS;
+            }
+            return printable;
+        }
+
+    }
+
+}
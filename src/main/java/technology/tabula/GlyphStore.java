@@ -0,0 +1,193 @@
+package technology.tabula;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+import org.apache.pdfbox.pdmodel.font.PDFont;
+
+/**
+ * The glyphs of a page in parallel primitive arrays, in the order they were shown, from which {@link TextElement}s
+ * are created on demand: the text layer of a {@link Page} only creates the elements of the glyphs it is asked for.
+ * <p>
+ * The fonts are stored as indices into the fonts of the page, and a text of a single code point as that code point;
+ * the {@code TextElement}s of the same code point share their {@code String}. Every glyph gets a single element.
+ * The glyphs are indexed by a {@link PackedRTree} of their bounds, built at the first query.
+ * <p>
+ * Filled by a single {@link TextStripper}; once filled, it can be queried from several threads.
+ */
+final class GlyphStore {
+
+    private static final int INITIAL_CAPACITY = 256;
+    // the code point of the texts that aren't a single code point
+    private static final int NO_CODE_POINT = -1;
+
+    private int size;
+    private float[] x = new float[INITIAL_CAPACITY];
+    private float[] y = new float[INITIAL_CAPACITY];
+    private float[] width = new float[INITIAL_CAPACITY];
+    private float[] height = new float[INITIAL_CAPACITY];
+    private float[] fontSize = new float[INITIAL_CAPACITY];
+    private float[] widthOfSpace = new float[INITIAL_CAPACITY];
+    private float[] direction = new float[INITIAL_CAPACITY];
+    private int[] fontIds = new int[INITIAL_CAPACITY];
+    private int[] codePoints = new int[INITIAL_CAPACITY];
+    // the texts of the glyphs without a code point, allocated with the first of them
+    private String[] texts;
+
+    private final List<PDFont> fonts = new ArrayList<>();
+    private final Map<PDFont, Integer> fontIdsByFont = new IdentityHashMap<>();
+    private final Map<Integer, String> strings = new HashMap<>();
+
+    // the elements created so far, and the index of the glyphs
+    private TextElement[] elements = new TextElement[INITIAL_CAPACITY];
+    private PackedRTree tree;
+
+    synchronized void add(float y, float x, float width, float height, PDFont font, float fontSize, String text,
+             float widthOfSpace, float direction) {
+        if (size == this.x.length) {
+            grow();
+        }
+        this.x[size] = x;
+        this.y[size] = y;
+        this.width[size] = width;
+        this.height[size] = height;
+        this.fontSize[size] = fontSize;
+        this.widthOfSpace[size] = widthOfSpace;
+        this.direction[size] = direction;
+        this.fontIds[size] = getFontId(font);
+
+        if (!text.isEmpty() && text.length() == Character.charCount(text.codePointAt(0))) {
+            int codePoint = text.codePointAt(0);
+            codePoints[size] = codePoint;
+            strings.putIfAbsent(codePoint, text);
+        } else {
+            codePoints[size] = NO_CODE_POINT;
+            if (texts == null) {
+                texts = new String[this.x.length];
+            }
+            texts[size] = text;
+        }
+        size++;
+        tree = null;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    /**
+     * @return the element of a glyph, created at the first call
+     */
+    synchronized TextElement getTextElement(int i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("Glyph " + i + " of " + size);
+        }
+        if (elements[i] == null) {
+            String text = codePoints[i] == NO_CODE_POINT ? texts[i] : strings.get(codePoints[i]);
+            elements[i] = new TextElement(y[i], x[i], width[i], height[i], fonts.get(fontIds[i]), fontSize[i], text,
+                    widthOfSpace[i], direction[i]);
+        }
+        return elements[i];
+    }
+
+    /**
+     * @return the elements of all the glyphs, in the order they were shown
+     */
+    synchronized List<TextElement> getTextElements() {
+        List<TextElement> textElements = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            textElements.add(getTextElement(i));
+        }
+        return textElements;
+    }
+
+    /**
+     * Visits the elements of the glyphs inside of {@code area} in the order of the index, like
+     * {@link RectangleSpatialIndex#contains(Rectangle, Consumer)} over all the elements; only these are created.
+     */
+    void contains(Rectangle area, Consumer<? super TextElement> visitor) {
+        float left = area.getLeft(), right = area.getRight(), top = area.getTop(), bottom = area.getBottom();
+        getTree().query(Math.min(left, right), Math.min(top, bottom), Math.max(left, right), Math.max(top, bottom), i -> {
+            if (area.contains(x[i], y[i], width[i], height[i])) {
+                visitor.accept(getTextElement(i));
+            }
+        });
+    }
+
+    /**
+     * Visits all the glyphs in the order of the index, without creating their elements.
+     */
+    void forEach(IntConsumer visitor) {
+        getTree().forEach(visitor);
+    }
+
+    /**
+     * Sets {@code bounds} to the bounds of a glyph, those of its element.
+     */
+    void getBounds(int i, Rectangle bounds) {
+        bounds.setRect(x[i], y[i], width[i], height[i]);
+    }
+
+    /**
+     * @return an index of the elements of all the glyphs, which are all created
+     */
+    RectangleSpatialIndex<TextElement> toSpatialIndex() {
+        RectangleSpatialIndex<TextElement> index = new RectangleSpatialIndex<>();
+        for (TextElement te : getTextElements()) {
+            index.add(te);
+        }
+        return index;
+    }
+
+    // - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - //
+    private synchronized PackedRTree getTree() {
+        if (tree == null) {
+            // the bounds of the elements, as RectangleSpatialIndex takes them
+            float[] rights = new float[size], bottoms = new float[size];
+            for (int i = 0; i < size; i++) {
+                rights[i] = (float) ((double) x[i] + width[i]);
+                bottoms[i] = (float) ((double) y[i] + height[i]);
+            }
+            tree = new PackedRTree(x, rights, y, bottoms, size);
+        }
+        return tree;
+    }
+
+    private int getFontId(PDFont font) {
+        // the glyphs mostly come in runs of the same font
+        if (size > 0 && fonts.get(fontIds[size - 1]) == font) {
+            return fontIds[size - 1];
+        }
+        Integer id = fontIdsByFont.get(font);
+        if (id == null) {
+            id = fonts.size();
+            fonts.add(font);
+            fontIdsByFont.put(font, id);
+        }
+        return id;
+    }
+
+    private void grow() {
+        int capacity = x.length * 2;
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        width = Arrays.copyOf(width, capacity);
+        height = Arrays.copyOf(height, capacity);
+        fontSize = Arrays.copyOf(fontSize, capacity);
+        widthOfSpace = Arrays.copyOf(widthOfSpace, capacity);
+        direction = Arrays.copyOf(direction, capacity);
+        fontIds = Arrays.copyOf(fontIds, capacity);
+        codePoints = Arrays.copyOf(codePoints, capacity);
+        if (texts != null) {
+            texts = Arrays.copyOf(texts, capacity);
+        }
+        elements = Arrays.copyOf(elements, capacity);
+    }
+
+}
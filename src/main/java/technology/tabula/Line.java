@@ -61,55 +61,59 @@ public class Line extends Rectangle {
         return sb.toString();
     }
 
-    static Line removeRepeatedCharacters(Line line, Character c, int minRunLength) {
-
-        Line rv = new Line();
-        
-        for(TextChunk t: line.getTextElements()) {
-            for (TextChunk r: t.squeeze(c, minRunLength)) {
-                rv.addTextChunk(r);
-            }
-        }
-        
-        return rv;
-    }
-
+    /**
+     * Groups the chunks into lines in a single pass over them, in their order: a line goes on while the chunks
+     * overlap it vertically. The lines that repeat one character across most of the width of the chunks,
+     * like separators drawn with dashes, are dropped, and the runs of 3 spaces or more are squeezed out of the others.
+     * The chunks and their list are left as they are.
+     */
     public static List<Line> groupByLines(List<TextChunk> textChunks) {
         List<Line> lines = new ArrayList<>();
-
-        if (textChunks.size() == 0) {
+        int count = textChunks.size();
+        if (count == 0) {
             return lines;
         }
 
-        float bbwidth = Rectangle.boundingBoxOf(textChunks).width;
-
-        Line l = new Line();
-        l.addTextChunk(textChunks.get(0));
-        textChunks.remove(0);
-        lines.add(l);
-
-        Line last = lines.get(lines.size() - 1);
-        for (TextChunk te : textChunks) {
-            if (last.verticalOverlapRatio(te) < 0.1) {
-                if (last.width / bbwidth > 0.9 && TextChunk.allSameChar(last.getTextElements())) {
-                    lines.remove(lines.size() - 1);
+        // the bounds of the unsqueezed chunks of the current line, and the width and first chunk of every line
+        Rectangle bounds = new Rectangle();
+        float[] widths = new float[count];
+        int[] starts = new int[count + 1];
+        // the bounds of all the chunks, as Rectangle.boundingBoxOf() computes them
+        float minX = java.lang.Float.MAX_VALUE;
+        float maxX = java.lang.Float.MIN_VALUE;
+
+        Line line = null;
+        for (int i = 0; i < count; i++) {
+            TextChunk textChunk = textChunks.get(i);
+            minX = (float) Math.min(textChunk.getMinX(), minX);
+            maxX = (float) Math.max(textChunk.getMaxX(), maxX);
+
+            if (line == null || bounds.verticalOverlapRatio(textChunk) < 0.1) {
+                if (line != null) {
+                    widths[lines.size() - 1] = bounds.width;
                 }
-                lines.add(new Line());
-                last = lines.get(lines.size() - 1);
+                line = new Line();
+                starts[lines.size()] = i;
+                lines.add(line);
+                bounds.setRect(textChunk);
+            } else {
+                bounds.merge(textChunk);
+            }
+            for (TextChunk squeezed : textChunk.squeeze(' ', 3)) {
+                line.addTextChunk(squeezed);
             }
-            last.addTextChunk(te);
-        }
-
-        if (last.width / bbwidth > 0.9 && TextChunk.allSameChar(last.getTextElements())) {
-            lines.remove(lines.size() - 1);
         }
-
-        List<Line> rv = new ArrayList<>(lines.size());
-
-        for (Line line : lines) {
-            rv.add(Line.removeRepeatedCharacters(line, ' ', 3));
+        widths[lines.size() - 1] = bounds.width;
+        starts[lines.size()] = count;
+
+        float bbwidth = maxX - minX;
+        int kept = 0;
+        for (int l = 0; l < lines.size(); l++) {
+            if (!(widths[l] / bbwidth > 0.9 && TextChunk.allSameChar(textChunks.subList(starts[l], starts[l + 1])))) {
+                lines.set(kept++, lines.get(l));
+            }
         }
-
-        return rv;
+        lines.subList(kept, lines.size()).clear();
+        return lines;
     }
 }
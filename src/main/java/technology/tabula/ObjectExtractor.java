@@ -1,33 +1,104 @@
 package technology.tabula;
 
+import java.io.File;
 import java.io.IOException;
 
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.DefaultResourceCache;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
 
 public class ObjectExtractor {
 
     private final PDDocument pdfDocument;
+    private final boolean releasePageResources;
+    private final FontMetricsCache fontMetricsCache = new FontMetricsCache();
 
     public ObjectExtractor(PDDocument pdfDocument) {
+        this(pdfDocument, false);
+    }
+
+    /**
+     * @param releasePageResources whether the fonts, images and other resources that PDFBox caches while extracting
+     *                             a page are released before the next one, trading speed for a smaller heap
+     */
+    public ObjectExtractor(PDDocument pdfDocument, boolean releasePageResources) {
         this.pdfDocument = pdfDocument;
+        this.releasePageResources = releasePageResources;
+    }
+
+    /**
+     * Loads a document for bounded-heap extraction: its buffers use at most {@code maxMainMemoryBytes} of heap,
+     * the rest being kept in a scratch file, and page resources are released after each page.
+     * The document is closed by {@link #close()}.
+     */
+    public static ObjectExtractor load(File pdfFile, String password, long maxMainMemoryBytes) throws IOException {
+        if (maxMainMemoryBytes < 0) {
+            throw new IllegalArgumentException("maxMainMemoryBytes must not be negative");
+        }
+        PDDocument pdfDocument = PDDocument.load(pdfFile, password == null ? "" : password,
+                MemoryUsageSetting.setupMixed(maxMainMemoryBytes));
+        return new ObjectExtractor(pdfDocument, true);
     }
 
     // - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - //
     protected Page extractPage(Integer pageNumber) throws IOException {
-        if (pageNumber > pdfDocument.getNumberOfPages() || pageNumber < 1) {
-            throw new java.lang.IndexOutOfBoundsException("Page number does not exist.");
-        }
-        PDPage page = pdfDocument.getPage(pageNumber - 1);
+        PDPage page = getPDPage(pageNumber);
 
-        ObjectExtractorStreamEngine streamEngine = new ObjectExtractorStreamEngine(page);
+        // rulings and glyphs are collected in a single pass over the content stream
+        TextStripper textStripper = new TextStripper(pdfDocument, pageNumber, fontMetricsCache);
+        ObjectExtractorStreamEngine streamEngine = new ObjectExtractorStreamEngine(page, textStripper);
         streamEngine.processPage(page);
 
-        TextStripper textStripper = new TextStripper(pdfDocument, pageNumber);
-        textStripper.process();
+        // the text elements are only created when the page is asked for them
+        return newPageBuilder(page, pageNumber)
+                .withRulings(streamEngine.rulings)
+                .withGlyphs(textStripper.getGlyphs())
+                .withMinCharWidth(textStripper.getMinCharWidth())
+                .withMinCharHeight(textStripper.getMinCharHeight())
+                .build();
+    }
 
-        Utils.sort(textStripper.getTextElements(), Rectangle.ILL_DEFINED_ORDER);
+    /**
+     * Returns a page whose text and rulings are only extracted when they are first needed,
+     * e.g. by {@link Page#getText()} or {@link Page#getRulings()}; asking for the text alone doesn't parse the rulings.
+     * The document must stay open, and must not be used by another thread, until then.
+     * Extraction failures are thrown as {@link java.io.UncheckedIOException}s by the accessors of the page.
+     */
+    public Page extractLazyPage(Integer pageNumber) {
+        PDPage page = getPDPage(pageNumber);
+        return newPageBuilder(page, pageNumber)
+                .withLayerLoader((lazyPage, text, rulings) -> loadLayers(lazyPage, page, pageNumber, text, rulings))
+                .build();
+    }
 
+    private void loadLayers(Page lazyPage, PDPage page, int pageNumber, boolean text, boolean rulings) throws IOException {
+        TextStripper textStripper = text ? new TextStripper(pdfDocument, pageNumber, fontMetricsCache) : null;
+        ObjectExtractorStreamEngine streamEngine = new ObjectExtractorStreamEngine(page, textStripper, rulings);
+        streamEngine.processPage(page);
+
+        if (text) {
+            lazyPage.setTextLayer(textStripper.getGlyphs(), textStripper.getMinCharWidth(),
+                    textStripper.getMinCharHeight());
+        }
+        if (rulings) {
+            lazyPage.setRulingLayer(streamEngine.rulings);
+        }
+    }
+
+    private PDPage getPDPage(Integer pageNumber) {
+        if (pageNumber > pdfDocument.getNumberOfPages() || pageNumber < 1) {
+            throw new java.lang.IndexOutOfBoundsException("Page number does not exist.");
+        }
+        if (releasePageResources) {
+            // pages only use the cache the document had when they were created,
+            // so the resources of the previous pages can be garbage collected
+            pdfDocument.setResourceCache(new DefaultResourceCache());
+        }
+        return pdfDocument.getPage(pageNumber - 1);
+    }
+
+    private Page.Builder newPageBuilder(PDPage page, int pageNumber) {
         float width, height;
         int rotation = page.getRotation();
         if (Math.abs(rotation) == 90 || Math.abs(rotation) == 270) {
@@ -43,13 +114,7 @@ public class ObjectExtractor {
                 .withRotation(rotation)
                 .withNumber(pageNumber)
                 .withPdPage(page)
-                .withPdDocument(pdfDocument)
-                .withRulings(streamEngine.rulings)
-                .withTextElements(textStripper.getTextElements())
-                .withMinCharWidth(textStripper.getMinCharWidth())
-                .withMinCharHeight(textStripper.getMinCharHeight())
-                .withIndex(textStripper.getSpatialIndex())
-                .build();
+                .withPdDocument(pdfDocument);
     }
 
     public Iterable<Integer> getPages () {
@@ -7,6 +7,8 @@ import java.awt.geom.Line2D;
 import java.awt.geom.PathIterator;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
@@ -15,27 +17,56 @@ import org.apache.pdfbox.contentstream.PDFGraphicsStreamEngine;
 import org.apache.pdfbox.cos.COSName;
 import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDSimpleFont;
+import org.apache.pdfbox.pdmodel.font.PDType3Font;
+import org.apache.pdfbox.pdmodel.font.encoding.GlyphList;
 import org.apache.pdfbox.pdmodel.graphics.image.PDImage;
+import org.apache.pdfbox.pdmodel.graphics.state.PDGraphicsState;
+import org.apache.pdfbox.text.TextPosition;
+import org.apache.pdfbox.util.Matrix;
+import org.apache.pdfbox.util.Vector;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import static java.awt.geom.PathIterator.*;
 
+/**
+ * Collects the {@link Ruling}s of a page and, when given a {@link TextStripper}, its glyphs too,
+ * so that the content stream of the page only has to be interpreted once.
+ */
 class ObjectExtractorStreamEngine extends PDFGraphicsStreamEngine {
 
     protected List<Ruling> rulings;
     private AffineTransform pageTransform;
-    private boolean extractRulingLines = true;
+    private final boolean extractRulingLines;
     private Logger logger;
     private int clipWindingRule = -1;
     private GeneralPath currentPath = new GeneralPath();
 
+    private final TextStripper textStripper;
+    private GlyphList glyphList;
+    private int pageRotation;
+    private PDRectangle pageSize;
+    private Matrix translateMatrix;
+    private int type3GlyphDepth = 0;
+
     private static final float RULING_MINIMUM_LENGTH = 0.01f;
 
     protected ObjectExtractorStreamEngine(PDPage page) {
+        this(page, null);
+    }
+
+    protected ObjectExtractorStreamEngine(PDPage page, TextStripper textStripper) {
+        this(page, textStripper, true);
+    }
+
+    protected ObjectExtractorStreamEngine(PDPage page, TextStripper textStripper, boolean extractRulingLines) {
         super(page);
         logger = LoggerFactory.getLogger(ObjectExtractorStreamEngine.class);
         rulings = new ArrayList<>();
+        this.textStripper = textStripper;
+        this.extractRulingLines = extractRulingLines;
 
         // Calculate page transform:
         pageTransform = new AffineTransform();
@@ -56,6 +87,111 @@ class ObjectExtractorStreamEngine extends PDFGraphicsStreamEngine {
     }
 
     // - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - //
+    @Override
+    public void processPage(PDPage page) throws IOException {
+        if (textStripper == null) {
+            super.processPage(page);
+            return;
+        }
+
+        pageRotation = page.getRotation();
+        pageSize = page.getCropBox();
+        if (pageSize.getLowerLeftX() == 0 && pageSize.getLowerLeftY() == 0) {
+            translateMatrix = null;
+        } else {
+            // translation matrix for cropbox
+            translateMatrix = Matrix.getTranslateInstance(-pageSize.getLowerLeftX(), -pageSize.getLowerLeftY());
+        }
+
+        textStripper.beginPage();
+        super.processPage(page);
+        textStripper.endPage();
+    }
+
+    @Override
+    protected void showGlyph(Matrix textRenderingMatrix, PDFont font, int code, Vector displacement) throws IOException {
+        // glyphs drawn by the content stream of a Type3 glyph are not text
+        if (textStripper != null && type3GlyphDepth == 0) {
+            TextPosition textPosition = createTextPosition(textRenderingMatrix, font, code, displacement);
+            if (textPosition != null) {
+                textStripper.addTextPosition(textPosition);
+            }
+        }
+
+        // Type3 glyphs are drawn with regular graphics operators, which may contain rulings
+        if (extractRulingLines && font instanceof PDType3Font) {
+            type3GlyphDepth++;
+            try {
+                super.showGlyph(textRenderingMatrix, font, code, displacement);
+            } finally {
+                type3GlyphDepth--;
+            }
+        }
+    }
+
+    /**
+     * Computes the position of a glyph the way PDFBox's {@code PDFTextStripper} does,
+     * including its legacy width and height heuristics.
+     */
+    private TextPosition createTextPosition(Matrix textRenderingMatrix, PDFont font, int code, Vector displacement) throws IOException {
+        PDGraphicsState state = getGraphicsState();
+        Matrix ctm = state.getCurrentTransformationMatrix();
+        float fontSize = state.getTextState().getFontSize();
+        float horizontalScaling = state.getTextState().getHorizontalScaling() / 100f;
+        Matrix textMatrix = getTextMatrix();
+
+        FontMetrics fontMetrics = textStripper.getFontMetrics(font);
+
+        float displacementX = displacement.getX();
+        // the displacement of vertical characters doesn't provide a suitable width
+        if (font.isVertical()) {
+            displacementX = font.getWidth(code) / 1000 * fontMetrics.getVerticalWidthScale();
+        }
+
+        // combined displacement, calculated without character and word spacing
+        float tx = displacementX * fontSize * horizontalScaling;
+        float ty = displacement.getY() * fontSize;
+        Matrix nextTextRenderingMatrix = Matrix.getTranslateInstance(tx, ty).multiply(textMatrix).multiply(ctm);
+        float nextX = nextTextRenderingMatrix.getTranslateX();
+        float nextY = nextTextRenderingMatrix.getTranslateY();
+
+        float dxDisplay = nextX - textRenderingMatrix.getTranslateX();
+        float dyDisplay = fontMetrics.getHeight() * textRenderingMatrix.getScalingFactorY();
+        float spaceWidthDisplay = fontMetrics.getSpaceWidth() * textRenderingMatrix.getScalingFactorX();
+
+        String unicode = font.toUnicode(code, getGlyphList());
+        if (unicode == null) {
+            if (!(font instanceof PDSimpleFont)) {
+                // composite font character codes are skipped, like Acrobat does
+                return null;
+            }
+            // otherwise coerce the character code into Unicode
+            unicode = new String(new char[] { (char) code });
+        }
+
+        Matrix translatedTextRenderingMatrix = textRenderingMatrix;
+        if (translateMatrix != null) {
+            translatedTextRenderingMatrix = Matrix.concatenate(translateMatrix, textRenderingMatrix);
+            nextX -= pageSize.getLowerLeftX();
+            nextY -= pageSize.getLowerLeftY();
+        }
+
+        return new TextPosition(pageRotation, pageSize.getWidth(), pageSize.getHeight(),
+                translatedTextRenderingMatrix, nextX, nextY, Math.abs(dyDisplay), dxDisplay,
+                Math.abs(spaceWidthDisplay), unicode, new int[] { code }, font, fontSize,
+                (int) (fontSize * textMatrix.getScalingFactorX()));
+    }
+
+    private GlyphList getGlyphList() throws IOException {
+        if (glyphList == null) {
+            // the additional glyph list is what PDFTextStripper uses for Unicode mapping
+            try (InputStream input = GlyphList.class.getResourceAsStream("/org/apache/pdfbox/resources/glyphlist/additional.txt")) {
+                glyphList = new GlyphList(GlyphList.getAdobeGlyphList(), input);
+            }
+        }
+        return glyphList;
+    }
+
     @Override
     public void appendRectangle(Point2D p0, Point2D p1, Point2D p2, Point2D p3) {
         currentPath.moveTo((float) p0.getX(), (float) p0.getY());
@@ -87,11 +223,12 @@ class ObjectExtractorStreamEngine extends PDFGraphicsStreamEngine {
 
     @Override
     public void endPath() {
-        if (clipWindingRule != -1) {
+        // the clipping path is only used to crop rulings
+        if (clipWindingRule != -1 && extractRulingLines) {
             currentPath.setWindingRule(clipWindingRule);
             getGraphicsState().intersectClippingPath(currentPath);
-            clipWindingRule = -1;
         }
+        clipWindingRule = -1;
         currentPath.reset();
     }
 
@@ -0,0 +1,253 @@
+package technology.tabula;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * A static R-tree of boxes, packed with the Sort-Tile-Recursive algorithm into primitive arrays.
+ * The boxes are known by their index in the arrays the tree is built from, their id.
+ * <p>
+ * The queries visit the ids in the same order as JTS's {@code STRtree}, which this tree replaced,
+ * so that the order of the text elements that only {@link Rectangle#ILL_DEFINED_ORDER} can't tell apart doesn't change.
+ * Immutable, and so safe to query from several threads.
+ */
+final class PackedRTree {
+
+    private static final int NODE_CAPACITY = 10;
+
+    // the boxes, in the order of the leaves, followed by every level of nodes up to the root
+    private final Level[] levels;
+
+    /**
+     * @param lefts the left of the box of every id, and so on
+     */
+    PackedRTree(float[] lefts, float[] rights, float[] tops, float[] bottoms, int size) {
+        Level level = new Level(size);
+        level.ids = new int[size];
+        for (int i = 0; i < size; i++) {
+            level.ids[i] = i;
+            level.setBounds(i, lefts[i], rights[i], bottoms[i], tops[i]);
+        }
+
+        List<Level> levels = new ArrayList<>();
+        levels.add(level);
+        while (level.size > 0 && (levels.size() == 1 || level.size > 1)) {
+            level = pack(level);
+            levels.add(level);
+        }
+        this.levels = levels.toArray(new Level[0]);
+    }
+
+    /**
+     * Visits the ids of the boxes intersecting the given envelope in the order of the tree.
+     */
+    void query(double minX, double minY, double maxX, double maxY, IntConsumer visitor) {
+        int root = levels.length - 1;
+        if (root > 0 && levels[root].intersects(0, minX, minY, maxX, maxY)) {
+            visit(root, 0, minX, minY, maxX, maxY, visitor);
+        }
+    }
+
+    /**
+     * Visits all the ids in the order of the tree: the results of every query come in this order.
+     */
+    void forEach(IntConsumer visitor) {
+        int root = levels.length - 1;
+        if (root > 0) {
+            double infinity = Double.POSITIVE_INFINITY;
+            visit(root, 0, -infinity, -infinity, infinity, infinity, visitor);
+        }
+    }
+
+    // - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - //
+    private void visit(int level, int node, double minX, double minY, double maxX, double maxY, IntConsumer visitor) {
+        Level nodes = levels[level];
+        Level children = levels[level - 1];
+        for (int child = nodes.childStart[node]; child < nodes.childEnd[node]; child++) {
+            if (!children.intersects(child, minX, minY, maxX, maxY)) {
+                continue;
+            }
+            if (level > 1) {
+                visit(level - 1, child, minX, minY, maxX, maxY, visitor);
+            } else {
+                visitor.accept(children.ids[child]);
+            }
+        }
+    }
+
+    /**
+     * Groups the boundables of a level into the nodes of the level above, sorting them in the order of these nodes:
+     * the boundables are cut into vertical slices by their center x, and every slice into nodes by their center y.
+     */
+    private static Level pack(Level children) {
+        int count = children.size;
+        int[] order = new int[count];
+        int[] buffer = new int[count];
+        double[] centres = new double[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+            centres[i] = (children.minX[i] + children.maxX[i]) / 2d;
+        }
+        sort(order, 0, count, centres, buffer);
+
+        int sliceCount = (int) Math.ceil(Math.sqrt(Math.ceil(count / (double) NODE_CAPACITY)));
+        int sliceCapacity = (int) Math.ceil(count / (double) sliceCount);
+        int nodeCount = 0;
+        for (int start = 0; start < count; start += sliceCapacity) {
+            nodeCount += (Math.min(sliceCapacity, count - start) + NODE_CAPACITY - 1) / NODE_CAPACITY;
+        }
+
+        for (int i = 0; i < count; i++) {
+            centres[i] = (children.minY[i] + children.maxY[i]) / 2d;
+        }
+        Level nodes = new Level(nodeCount);
+        nodes.childStart = new int[nodeCount];
+        nodes.childEnd = new int[nodeCount];
+        int node = 0;
+        for (int start = 0; start < count; start += sliceCapacity) {
+            int end = Math.min(start + sliceCapacity, count);
+            sort(order, start, end, centres, buffer);
+            for (int child = start; child < end; child += NODE_CAPACITY) {
+                nodes.childStart[node] = child;
+                nodes.childEnd[node] = Math.min(child + NODE_CAPACITY, end);
+                node++;
+            }
+        }
+
+        children.reorder(order);
+        for (node = 0; node < nodeCount; node++) {
+            nodes.setBounds(node, children, nodes.childStart[node], nodes.childEnd[node]);
+        }
+        return nodes;
+    }
+
+    // stable merge sort of the indices by their keys
+    private static void sort(int[] order, int from, int to, double[] keys, int[] buffer) {
+        if (to - from <= 16) {
+            for (int i = from + 1; i < to; i++) {
+                int index = order[i];
+                int j = i - 1;
+                for (; j >= from && keys[order[j]] > keys[index]; j--) {
+                    order[j + 1] = order[j];
+                }
+                order[j + 1] = index;
+            }
+            return;
+        }
+
+        int middle = (from + to) >>> 1;
+        sort(order, from, middle, keys, buffer);
+        sort(order, middle, to, keys, buffer);
+        if (!(keys[order[middle]] < keys[order[middle - 1]])) {
+            return;
+        }
+
+        System.arraycopy(order, from, buffer, from, to - from);
+        int i = from, j = middle, k = from;
+        while (i < middle && j < to) {
+            order[k++] = keys[buffer[j]] < keys[buffer[i]] ? buffer[j++] : buffer[i++];
+        }
+        while (i < middle) {
+            order[k++] = buffer[i++];
+        }
+        while (j < to) {
+            order[k++] = buffer[j++];
+        }
+    }
+
+    // - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - //
+    /**
+     * The bounds of the boxes with their ids, or of the nodes with the range of their children in the level below.
+     */
+    private static final class Level {
+
+        final int size;
+        double[] minX, minY, maxX, maxY;
+        int[] ids;
+        int[] childStart, childEnd;
+
+        Level(int size) {
+            this.size = size;
+            this.minX = new double[size];
+            this.minY = new double[size];
+            this.maxX = new double[size];
+            this.maxY = new double[size];
+        }
+
+        void setBounds(int i, double x1, double x2, double y1, double y2) {
+            // normalized like a JTS Envelope
+            if (x1 < x2) {
+                minX[i] = x1;
+                maxX[i] = x2;
+            } else {
+                minX[i] = x2;
+                maxX[i] = x1;
+            }
+            if (y1 < y2) {
+                minY[i] = y1;
+                maxY[i] = y2;
+            } else {
+                minY[i] = y2;
+                maxY[i] = y1;
+            }
+        }
+
+        void setBounds(int i, Level children, int from, int to) {
+            minX[i] = children.minX[from];
+            minY[i] = children.minY[from];
+            maxX[i] = children.maxX[from];
+            maxY[i] = children.maxY[from];
+            for (int child = from + 1; child < to; child++) {
+                if (children.minX[child] < minX[i]) {
+                    minX[i] = children.minX[child];
+                }
+                if (children.maxX[child] > maxX[i]) {
+                    maxX[i] = children.maxX[child];
+                }
+                if (children.minY[child] < minY[i]) {
+                    minY[i] = children.minY[child];
+                }
+                if (children.maxY[child] > maxY[i]) {
+                    maxY[i] = children.maxY[child];
+                }
+            }
+        }
+
+        boolean intersects(int i, double minX, double minY, double maxX, double maxY) {
+            return !(minX > this.maxX[i] || maxX < this.minX[i] || minY > this.maxY[i] || maxY < this.minY[i]);
+        }
+
+        void reorder(int[] order) {
+            minX = reorder(minX, order);
+            minY = reorder(minY, order);
+            maxX = reorder(maxX, order);
+            maxY = reorder(maxY, order);
+            if (ids != null) {
+                ids = reorder(ids, order);
+            }
+            if (childStart != null) {
+                childStart = reorder(childStart, order);
+                childEnd = reorder(childEnd, order);
+            }
+        }
+
+        private static double[] reorder(double[] values, int[] order) {
+            double[] reordered = new double[values.length];
+            for (int i = 0; i < values.length; i++) {
+                reordered[i] = values[order[i]];
+            }
+            return reordered;
+        }
+
+        private static int[] reorder(int[] values, int[] order) {
+            int[] reordered = new int[values.length];
+            for (int i = 0; i < values.length; i++) {
+                reordered[i] = values[order[i]];
+            }
+            return reordered;
+        }
+
+    }
+
+}
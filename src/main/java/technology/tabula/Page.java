@@ -1,6 +1,8 @@
 package technology.tabula;
 
 import java.awt.geom.Point2D;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
@@ -33,6 +35,13 @@ public class Page extends Rectangle {
     private PDDocument pdDoc;
 
     private RectangleSpatialIndex<TextElement> spatialIndex;
+    // the glyphs of an extracted page, whose elements are only created when they are asked for;
+    // the text elements and the index are then created from them
+    private GlyphStore glyphs;
+
+    // set while the text or graphics layer of a lazily extracted page was not parsed yet
+    private LayerLoader layerLoader;
+    private List<Ruling> addedRulings;
 
     private static final float DEFAULT_MIN_CHAR_LENGTH = 7;
 
@@ -46,7 +55,9 @@ public class Page extends Rectangle {
             List<Ruling> rulings,
             float minCharWidth,
             float minCharHeight,
-            RectangleSpatialIndex<TextElement> index
+            RectangleSpatialIndex<TextElement> index,
+            GlyphStore glyphs,
+            LayerLoader layerLoader
     ) {
         super(pageDims.getTop(), pageDims.getLeft(), pageDims.getWidth(), pageDims.getHeight());
         this.rotation = rotation;
@@ -58,12 +69,70 @@ public class Page extends Rectangle {
         this.minCharWidth = minCharWidth;
         this.minCharHeight = minCharHeight;
         this.spatialIndex = index;
+        this.glyphs = glyphs;
+        this.layerLoader = layerLoader;
     }
 
     // - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - //
     public Page getArea(Rectangle area) {
         List<TextElement> areaTextElements = getText(area);
+        return createArea(area, areaTextElements, Ruling.cropRulingsToArea(getRulings(), area));
+    }
+
+    /**
+     * Returns the same pages as {@link #getArea(Rectangle)} would for every area, partitioning the text elements
+     * and the rulings of this page into all the areas at once instead of going through them once per area.
+     * The rulings are cropped as they are when this method is called.
+     */
+    public List<Page> getAreas(List<? extends Rectangle> areas) {
+        RectangleSpatialIndex<AreaContents> areaIndex = new RectangleSpatialIndex<>();
+        List<AreaContents> contents = new ArrayList<>(areas.size());
+        for (Rectangle area : areas) {
+            AreaContents areaContents = new AreaContents(area);
+            contents.add(areaContents);
+            areaIndex.add(areaContents);
+        }
+
+        List<Ruling> pageRulings = getRulings();
+        // in the order of the index, so that every area gets its text elements in the order of getText(area)
+        if (glyphs != null) {
+            // only the elements of the glyphs in an area are created
+            Rectangle bounds = new Rectangle();
+            glyphs.forEach(i -> {
+                glyphs.getBounds(i, bounds);
+                areaIndex.intersects(bounds, areaContents -> {
+                    if (areaContents.area.contains(bounds)) {
+                        areaContents.textElements.add(glyphs.getTextElement(i));
+                    }
+                });
+            });
+        } else {
+            spatialIndex.forEach(te -> areaIndex.intersects(te, areaContents -> {
+                if (areaContents.area.contains(te)) {
+                    areaContents.textElements.add(te);
+                }
+            }));
+        }
+        for (Ruling ruling : pageRulings) {
+            // the bounds are widened to be safe from rounding, Ruling.intersects() decides
+            Rectangle bounds = new Rectangle(Math.min(ruling.y1, ruling.y2) - 1, Math.min(ruling.x1, ruling.x2) - 1,
+                    Math.abs(ruling.x2 - ruling.x1) + 2, Math.abs(ruling.y2 - ruling.y1) + 2);
+            areaIndex.intersects(bounds, areaContents -> {
+                if (ruling.intersects(areaContents.area)) {
+                    areaContents.rulings.add(ruling.intersect(areaContents.area));
+                }
+            });
+        }
+
+        List<Page> pages = new ArrayList<>(contents.size());
+        for (AreaContents areaContents : contents) {
+            Utils.sortInReadingOrder(areaContents.textElements);
+            pages.add(createArea(areaContents.area, areaContents.textElements, areaContents.rulings));
+        }
+        return pages;
+    }
 
+    private Page createArea(Rectangle area, List<TextElement> areaTextElements, List<Ruling> areaRulings) {
         float minimumCharWidth = getMinimumCharWidthFrom(areaTextElements);
         float minimumCharHeight = getMinimumCharHeightFrom(areaTextElements);
 
@@ -74,10 +143,11 @@ public class Page extends Rectangle {
                 .withPdPage(pdPage)
                 .withPdDocument(pdDoc)
                 .withTextElements(areaTextElements)
-                .withRulings(Ruling.cropRulingsToArea(getRulings(), area))
+                .withRulings(areaRulings)
                 .withMinCharWidth(minimumCharWidth)
                 .withMinCharHeight(minimumCharHeight)
                 .withIndex(spatialIndex)
+                .withGlyphs(glyphs)
                 .build();
 
         addBorderRulingsTo(page);
@@ -129,6 +199,7 @@ public class Page extends Rectangle {
      */
     @Deprecated
     public float getMinCharWidth() {
+        loadLayers(true, false);
         return minCharWidth;
     }
 
@@ -137,16 +208,30 @@ public class Page extends Rectangle {
      */
     @Deprecated
     public float getMinCharHeight() {
+        loadLayers(true, false);
         return minCharHeight;
     }
 
     // - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - //
     public List<TextElement> getText() {
+        loadLayers(true, false);
+        if (textElements == null && glyphs != null) {
+            textElements = glyphs.getTextElements();
+            Utils.sortInReadingOrder(textElements);
+        }
         return textElements;
     }
 
     public List<TextElement> getText(Rectangle area) {
-        return spatialIndex.contains(area);
+        loadLayers(true, false);
+        List<TextElement> areaTextElements = new ArrayList<>();
+        if (glyphs != null) {
+            glyphs.contains(area, areaTextElements::add);
+        } else {
+            spatialIndex.contains(area, areaTextElements::add);
+        }
+        Utils.sortInReadingOrder(areaTextElements);
+        return areaTextElements;
     }
 
     /**
@@ -162,7 +247,7 @@ public class Page extends Rectangle {
      */
     @Deprecated
     public List<TextElement> getTexts() {
-        return textElements;
+        return getText();
     }
 
     /**
@@ -182,7 +267,7 @@ public class Page extends Rectangle {
      */
     @Deprecated
     public boolean hasText() {
-        return textElements.size() > 0;
+        return getText().size() > 0;
     }
 
     // - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - //
@@ -190,6 +275,8 @@ public class Page extends Rectangle {
         if (cleanRulings != null) {
             return cleanRulings;
         }
+        // snapping the rulings needs the minimum character size
+        loadLayers(true, true);
 
         if (rulings == null || rulings.isEmpty()) {
             verticalRulingLines = new ArrayList<>();
@@ -250,6 +337,14 @@ public class Page extends Rectangle {
         if (ruling.oblique()) {
             throw new UnsupportedOperationException("Can't add an oblique ruling.");
         }
+        if (rulings == null && layerLoader != null) {
+            // keep them until the graphics layer is parsed, no need to parse it now
+            if (addedRulings == null) {
+                addedRulings = new ArrayList<>();
+            }
+            addedRulings.add(ruling);
+            return;
+        }
         rulings.add(ruling);
         // Clear caches:
         verticalRulingLines = null;
@@ -258,6 +353,7 @@ public class Page extends Rectangle {
     }
 
     public List<Ruling> getUnprocessedRulings() {
+        loadLayers(false, true);
         return rulings;
     }
 
@@ -277,9 +373,69 @@ public class Page extends Rectangle {
      */
     @Deprecated
     public RectangleSpatialIndex<TextElement> getSpatialIndex() {
+        loadLayers(true, false);
+        if (spatialIndex == null && glyphs != null) {
+            spatialIndex = glyphs.toSpatialIndex();
+        }
         return spatialIndex;
     }
 
+    // - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - //
+    /**
+     * Parses the text and/or the graphics layer of a lazily extracted page.
+     */
+    interface LayerLoader {
+        void load(Page page, boolean text, boolean rulings) throws IOException;
+    }
+
+    void setTextLayer(GlyphStore glyphs, float minCharWidth, float minCharHeight) {
+        this.glyphs = glyphs;
+        this.minCharWidth = minCharWidth;
+        this.minCharHeight = minCharHeight;
+    }
+
+    void setRulingLayer(List<Ruling> rulings) {
+        this.rulings = rulings;
+        if (addedRulings != null) {
+            this.rulings.addAll(addedRulings);
+            addedRulings = null;
+        }
+    }
+
+    private void loadLayers(boolean text, boolean rulings) {
+        if (layerLoader == null) {
+            return;
+        }
+        text &= textElements == null && glyphs == null;
+        rulings &= this.rulings == null;
+        if (!text && !rulings) {
+            return;
+        }
+        try {
+            layerLoader.load(this, text, rulings);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not extract page " + number, e);
+        }
+        if ((textElements != null || glyphs != null) && this.rulings != null) {
+            layerLoader = null;
+        }
+    }
+
+    /**
+     * An area of {@link #getAreas(List)}, with the text elements and the rulings found in it so far.
+     */
+    @SuppressWarnings("serial")
+    private static class AreaContents extends Rectangle {
+        private final Rectangle area;
+        private final List<TextElement> textElements = new ArrayList<>();
+        private final List<Ruling> rulings = new ArrayList<>();
+
+        AreaContents(Rectangle area) {
+            super(area.getTop(), area.getLeft(), (float) area.getWidth(), (float) area.getHeight());
+            this.area = area;
+        }
+    }
+
     public static class Builder {
         private PageDims pageDims;
         private int rotation;
@@ -291,6 +447,8 @@ public class Page extends Rectangle {
         private float minCharWidth;
         private float minCharHeight;
         private RectangleSpatialIndex<TextElement> index;
+        private GlyphStore glyphs;
+        private LayerLoader layerLoader;
 
         private Builder() {}
 
@@ -358,8 +516,20 @@ public class Page extends Rectangle {
             return this;
         }
 
+        Builder withGlyphs(GlyphStore glyphs) {
+            this.glyphs = glyphs;
+
+            return this;
+        }
+
+        Builder withLayerLoader(LayerLoader layerLoader) {
+            this.layerLoader = layerLoader;
+
+            return this;
+        }
+
         public Page build() {
-            return new Page(pageDims, rotation, number, pdPage, pdDocument, textElements, rulings, minCharWidth, minCharHeight, index);
+            return new Page(pageDims, rotation, number, pdPage, pdDocument, textElements, rulings, minCharWidth, minCharHeight, index, glyphs, layerLoader);
         }
     }
 }
@@ -0,0 +1,156 @@
+package technology.tabula;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+
+/**
+ * Extracts many pages of the same PDF file at once.
+ * <p>
+ * {@link PDDocument} is not thread-safe, so every worker thread loads its own copy of the document
+ * and runs an {@link ObjectExtractor} on it. Pages are always returned in the order they were requested.
+ * <p>
+ * The returned {@link Page}s keep a reference to the document of the worker that extracted them,
+ * so this extractor must stay open for as long as the pages' {@code PDPage}/{@code PDDocument} are in use,
+ * and those PDFBox objects must not be used while another {@link #extract(Iterable)} call is running.
+ */
+public class ParallelObjectExtractor implements Closeable {
+
+    private final File pdfFile;
+    private final String password;
+    private final int numberOfPages;
+    private final ExecutorService executor;
+    private final List<PDDocument> workerDocuments = new CopyOnWriteArrayList<>();
+    private final ThreadLocal<ObjectExtractor> workerExtractor = new ThreadLocal<>();
+
+    public ParallelObjectExtractor(File pdfFile, int threads) throws IOException {
+        this(pdfFile, null, threads);
+    }
+
+    public ParallelObjectExtractor(File pdfFile, String password, int threads) throws IOException {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be at least 1");
+        }
+        this.pdfFile = pdfFile;
+        this.password = password;
+        try (PDDocument document = loadDocument()) {
+            this.numberOfPages = document.getNumberOfPages();
+        }
+        this.executor = Executors.newFixedThreadPool(threads, new WorkerThreadFactory());
+    }
+
+    // - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - //
+    public List<Page> extract(Iterable<Integer> pageNumbers) throws IOException {
+        List<Future<Page>> futures = new ArrayList<>();
+        for (Integer pageNumber : pageNumbers) {
+            futures.add(submit(pageNumber));
+        }
+
+        List<Page> pages = new ArrayList<>(futures.size());
+        try {
+            for (Future<Page> future : futures) {
+                pages.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while extracting pages", e);
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        } finally {
+            if (pages.size() < futures.size()) {
+                // the pages that didn't start are dropped; the running ones are left to finish,
+                // as interrupting PDFBox in the middle of a read could break the document of their worker
+                for (Future<Page> future : futures) {
+                    future.cancel(false);
+                }
+            }
+        }
+        return pages;
+    }
+
+    public List<Page> extractAll() throws IOException {
+        return extract(getPages());
+    }
+
+    public Iterable<Integer> getPages() {
+        return Utils.range(1, numberOfPages + 1);
+    }
+
+    public int getNumberOfPages() {
+        return numberOfPages;
+    }
+
+    @Override
+    public void close() throws IOException {
+        executor.shutdownNow();
+        IOException closeException = null;
+        for (PDDocument document : workerDocuments) {
+            try {
+                document.close();
+            } catch (IOException e) {
+                closeException = e;
+            }
+        }
+        workerDocuments.clear();
+        if (closeException != null) {
+            throw closeException;
+        }
+    }
+
+    // - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - //
+    Future<Page> submit(int pageNumber) {
+        return executor.submit(() -> getWorkerExtractor().extractPage(pageNumber));
+    }
+
+    private ObjectExtractor getWorkerExtractor() throws IOException {
+        ObjectExtractor extractor = workerExtractor.get();
+        if (extractor == null) {
+            PDDocument document = loadDocument();
+            workerDocuments.add(document);
+            extractor = new ObjectExtractor(document);
+            workerExtractor.set(extractor);
+        }
+        return extractor;
+    }
+
+    private PDDocument loadDocument() throws IOException {
+        return password == null ? PDDocument.load(pdfFile) : PDDocument.load(pdfFile, password);
+    }
+
+    static IOException unwrap(ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof IOException) {
+            return (IOException) cause;
+        }
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return new IOException(cause);
+    }
+
+    private static class WorkerThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "tabula-page-extractor-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+}
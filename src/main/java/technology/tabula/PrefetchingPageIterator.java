@@ -0,0 +1,158 @@
+package technology.tabula;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Iterates over pages while the next ones are extracted in the background.
+ * <p>
+ * At most {@code lookAhead} pages are extracted ahead of the page returned last, which caps the memory held by
+ * pages that were not asked for yet. A look-ahead of 0 extracts every page in the calling thread when it is requested.
+ * <p>
+ * With an {@link ObjectExtractor}, pages are extracted one at a time by a single background thread, as
+ * {@code PDDocument} is not thread-safe: the document and the {@code PDPage}s of the returned pages must not be used
+ * (e.g. rendered) until this iterator is closed. With a {@link ParallelObjectExtractor}, the look-ahead pages are
+ * extracted by its worker threads.
+ * <p>
+ * Unlike {@link PageIterator}, extraction failures are never swallowed: {@link #nextPage()} throws the
+ * {@link IOException} and {@link #next()} wraps it into an {@link UncheckedIOException}.
+ */
+public class PrefetchingPageIterator implements Iterator<Page>, Closeable {
+
+    private final Iterator<Integer> pageNumbers;
+    private final int lookAhead;
+    private final Function<Integer, Future<Page>> extraction;
+    private final ExecutorService executor;
+    private final Deque<Future<Page>> window = new ArrayDeque<>();
+
+    public PrefetchingPageIterator(ObjectExtractor objectExtractor, Iterable<Integer> pages, int lookAhead) {
+        this.pageNumbers = pages.iterator();
+        this.lookAhead = checkLookAhead(lookAhead);
+        this.executor = lookAhead == 0 ? null : Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "tabula-page-prefetcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.extraction = pageNumber -> submit(() -> objectExtractor.extractPage(pageNumber));
+        fillWindow();
+    }
+
+    public PrefetchingPageIterator(ParallelObjectExtractor parallelObjectExtractor, Iterable<Integer> pages, int lookAhead) {
+        this.pageNumbers = pages.iterator();
+        this.lookAhead = checkLookAhead(lookAhead);
+        this.executor = null;
+        this.extraction = parallelObjectExtractor::submit;
+        fillWindow();
+    }
+
+    // - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - //
+    @Override
+    public boolean hasNext() {
+        return !window.isEmpty() || pageNumbers.hasNext();
+    }
+
+    @Override
+    public Page next() {
+        try {
+            return nextPage();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns the next page, waiting for its extraction to finish if needed.
+     * The extraction of the following pages is started before waiting.
+     */
+    public Page nextPage() throws IOException {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        if (window.isEmpty()) {
+            window.add(extraction.apply(pageNumbers.next()));
+        }
+        Future<Page> nextPage = window.poll();
+        fillWindow();
+
+        try {
+            return nextPage.get();
+        } catch (InterruptedException e) {
+            // not interrupted while running, as PDFBox could be left in the middle of a read of the document
+            nextPage.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while extracting page");
+        } catch (ExecutionException e) {
+            throw ParallelObjectExtractor.unwrap(e);
+        }
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Cancels the extraction of the pages that were not returned yet and stops the background thread, if any.
+     * A page already being extracted is finished first, so the document can safely be closed afterwards.
+     */
+    @Override
+    public void close() {
+        for (Future<Page> future : window) {
+            future.cancel(false);
+        }
+        window.clear();
+        if (executor == null) {
+            return;
+        }
+        executor.shutdown();
+        boolean interrupted = false;
+        while (!executor.isTerminated()) {
+            try {
+                executor.awaitTermination(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - //
+    private void fillWindow() {
+        while (window.size() < lookAhead && pageNumbers.hasNext()) {
+            window.add(extraction.apply(pageNumbers.next()));
+        }
+    }
+
+    private Future<Page> submit(Callable<Page> task) {
+        if (executor != null) {
+            return executor.submit(task);
+        }
+        FutureTask<Page> future = new FutureTask<>(task);
+        future.run();
+        return future;
+    }
+
+    private static int checkLookAhead(int lookAhead) {
+        if (lookAhead < 0) {
+            throw new IllegalArgumentException("lookAhead must not be negative");
+        }
+        return lookAhead;
+    }
+
+}
@@ -2,47 +2,107 @@ package technology.tabula;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
-import org.locationtech.jts.geom.Envelope;
-import org.locationtech.jts.index.strtree.STRtree;
-
+/**
+ * A static R-tree of rectangles, a {@link PackedRTree} of their bounds.
+ * <p>
+ * The tree is bulk-loaded at the first query, once all the rectangles of a page have been added;
+ * adding a rectangle afterwards makes the next query pack it again.
+ */
 public class RectangleSpatialIndex<T extends Rectangle> {
-    
 
-    private final STRtree si = new STRtree();
     private final List<T> rectangles = new ArrayList<>();
 
+    private volatile PackedRTree tree;
+
     public void add(T te) {
         rectangles.add(te);
-        si.insert(new Envelope(te.getLeft(), te.getRight(), te.getBottom(), te.getTop()), te);
+        tree = null;
     }
-    
-    public List<T> contains(Rectangle r) {
-        List<T> intersection = si.query(new Envelope(r.getLeft(), r.getRight(), r.getTop(), r.getBottom()));
-        List<T> rv = new ArrayList<T>();
-
-        for (T ir: intersection) {
-            if (r.contains(ir)) {
-                rv.add(ir);
-            }
-        }
 
+    /**
+     * @return the rectangles inside of {@code r}, sorted by {@link Rectangle#ILL_DEFINED_ORDER}
+     */
+    public List<T> contains(Rectangle r) {
+        List<T> rv = new ArrayList<>();
+        contains(r, rv::add);
         Utils.sort(rv, Rectangle.ILL_DEFINED_ORDER);
         return rv;
     }
-    
+
+    /**
+     * Visits the rectangles inside of {@code r} in the order of the index, without collecting them.
+     */
+    public void contains(Rectangle r, Consumer<? super T> visitor) {
+        query(r, true, visitor);
+    }
+
     public List<T> intersects(Rectangle r) {
-        List rv = si.query(new Envelope(r.getLeft(), r.getRight(), r.getTop(), r.getBottom()));
+        List<T> rv = new ArrayList<>();
+        intersects(r, rv::add);
         return rv;
     }
-    
+
+    /**
+     * Visits the rectangles intersecting {@code r} in the order of the index, without collecting them.
+     */
+    public void intersects(Rectangle r, Consumer<? super T> visitor) {
+        query(r, false, visitor);
+    }
+
+    /**
+     * Visits all the rectangles in the order of the index: the results of every query come in this order.
+     */
+    void forEach(Consumer<? super T> visitor) {
+        getTree().forEach(id -> visitor.accept(rectangles.get(id)));
+    }
+
     /**
      * Minimum bounding box of all the Rectangles contained on this RectangleSpatialIndex
-     * 
+     *
      * @return a Rectangle
      */
     public Rectangle getBounds() {
         return Rectangle.boundingBoxOf(rectangles);
     }
 
+    // - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - //
+    private void query(Rectangle r, boolean contained, Consumer<? super T> visitor) {
+        float left = r.getLeft(), right = r.getRight(), top = r.getTop(), bottom = r.getBottom();
+        getTree().query(Math.min(left, right), Math.min(top, bottom), Math.max(left, right), Math.max(top, bottom), id -> {
+            T rectangle = rectangles.get(id);
+            if (!contained || r.contains(rectangle)) {
+                visitor.accept(rectangle);
+            }
+        });
+    }
+
+    private PackedRTree getTree() {
+        PackedRTree tree = this.tree;
+        if (tree == null) {
+            synchronized (this) {
+                tree = this.tree;
+                if (tree == null) {
+                    tree = build(rectangles);
+                    this.tree = tree;
+                }
+            }
+        }
+        return tree;
+    }
+
+    private static PackedRTree build(List<? extends Rectangle> rectangles) {
+        int size = rectangles.size();
+        float[] lefts = new float[size], rights = new float[size], tops = new float[size], bottoms = new float[size];
+        for (int i = 0; i < size; i++) {
+            Rectangle r = rectangles.get(i);
+            lefts[i] = r.getLeft();
+            rights[i] = r.getRight();
+            tops[i] = r.getTop();
+            bottoms[i] = r.getBottom();
+        }
+        return new PackedRTree(lefts, rights, tops, bottoms, size);
+    }
+
 }
@@ -17,7 +17,6 @@ public class Ruling extends Line2D.Float {
     
     private static int PERPENDICULAR_PIXEL_EXPAND_AMOUNT = 2;
     private static int COLINEAR_OR_PARALLEL_PIXEL_EXPAND_AMOUNT = 1;
-    private enum SOType { VERTICAL, HRIGHT, HLEFT }
 
     public Ruling(float top, float left, float width, float height) {
         this(new Point2D.Float(left, top), new Point2D.Float(left+width, top+height));
@@ -307,30 +306,17 @@ public class Ruling extends Line2D.Float {
         return rv;
     }
     
-    // log(n) implementation of find_intersections
-    // based on http://people.csail.mit.edu/indyk/6.838-old/handouts/lec2.pdf
+    /**
+     * Finds the points where the horizontal rulings cross the vertical ones, once both are expanded
+     * by {@link #PERPENDICULAR_PIXEL_EXPAND_AMOUNT}, as {@link #intersectionPoint(Ruling)} does.
+     * <p>
+     * Sweeps the verticals from left to right while keeping the horizontals that span the sweep line in a count tree
+     * over their ranks by y, so that every vertical only visits the horizontals within its own y range:
+     * O((n + k) log n) for n rulings and k intersections.
+     *
+     * @return the expanded horizontal and vertical ruling of every intersection point, by y then x
+     */
     public static Map<Point2D, Ruling[]> findIntersections(List<Ruling> horizontals, List<Ruling> verticals) {
-        
-        class SortObject {
-            protected SOType type;
-            protected float position;
-            protected Ruling ruling;
-            
-            public SortObject(SOType type, float position, Ruling ruling) {
-                this.type = type;
-                this.position = position;
-                this.ruling = ruling;
-            }
-        }
-        
-        List<SortObject> sos = new ArrayList<>();
-        
-        TreeMap<Ruling, Boolean> tree = new TreeMap<>(new Comparator<Ruling>() {
-            @Override
-            public int compare(Ruling o1, Ruling o2) {
-                return java.lang.Double.compare(o1.getTop(), o2.getTop());
-            }});
-        
         TreeMap<Point2D, Ruling[]> rv = new TreeMap<>(new Comparator<Point2D>() {
             @Override
             public int compare(Point2D o1, Point2D o2) {
@@ -341,110 +327,230 @@ public class Ruling extends Line2D.Float {
                 return 0;
             }
         });
-        
-        for (Ruling h : horizontals) {
-            sos.add(new SortObject(SOType.HLEFT, h.getLeft() - PERPENDICULAR_PIXEL_EXPAND_AMOUNT, h));
-            sos.add(new SortObject(SOType.HRIGHT, h.getRight() + PERPENDICULAR_PIXEL_EXPAND_AMOUNT, h));
+        int hCount = horizontals.size();
+        int vCount = verticals.size();
+        if (hCount == 0 || vCount == 0) {
+            return rv;
         }
 
-        for (Ruling v : verticals) {
-            sos.add(new SortObject(SOType.VERTICAL, v.getLeft(), v));
+        // the expanded horizontals, ranked by y
+        float[] hx1 = new float[hCount], hx2 = new float[hCount], hy1 = new float[hCount], hy2 = new float[hCount];
+        float[] enters = new float[hCount], leaves = new float[hCount];
+        float maxSlope = 0;
+        for (int h = 0; h < hCount; h++) {
+            Ruling ruling = horizontals.get(h);
+            hx1[h] = ruling.x1 - PERPENDICULAR_PIXEL_EXPAND_AMOUNT;
+            hx2[h] = ruling.x2 + PERPENDICULAR_PIXEL_EXPAND_AMOUNT;
+            hy1[h] = ruling.y1;
+            hy2[h] = ruling.y2;
+            // a horizontal drawn from right to left, like the bottom border of Page.getArea(), joins the sweep
+            // at its start and never leaves it: it can only meet the verticals at its start
+            enters[h] = hx1[h];
+            leaves[h] = hx2[h] >= hx1[h] ? hx2[h] : java.lang.Float.POSITIVE_INFINITY;
+            maxSlope = Math.max(maxSlope, Math.abs(hy2[h] - hy1[h]));
+        }
+        int[] byY = Utils.sortedIndices(hy1);
+        int[] ranks = new int[hCount];
+        float[] rankedY = new float[hCount];
+        for (int rank = 0; rank < hCount; rank++) {
+            ranks[byY[rank]] = rank;
+            rankedY[rank] = hy1[byY[rank]];
+        }
+        int[] byEnter = Utils.sortedIndices(enters);
+        int[] byLeave = Utils.sortedIndices(leaves);
+
+        float[] vx = new float[vCount];
+        for (int v = 0; v < vCount; v++) {
+            vx[v] = verticals.get(v).x1;
         }
-        
-        Collections.sort(sos, new Comparator<SortObject>() {
-            @Override
-            public int compare(SortObject a, SortObject b) {
-                int rv;
-                if (Utils.feq(a.position, b.position)) {
-                    if (a.type == SOType.VERTICAL && b.type == SOType.HLEFT) {
-                       rv = 1;     
-                    }
-                    else if (a.type == SOType.VERTICAL && b.type == SOType.HRIGHT) {
-                       rv = -1;
-                    }
-                    else if (a.type == SOType.HLEFT && b.type == SOType.VERTICAL) {
-                       rv = -1;
-                    }
-                    else if (a.type == SOType.HRIGHT && b.type == SOType.VERTICAL) {
-                       rv = 1;
-                     }
-                    else {
-                       rv = java.lang.Double.compare(a.position, b.position);
-                    }
-                }
-                else {
-                    return java.lang.Double.compare(a.position, b.position);
-                }
-                return rv;
+        int[] byX = Utils.sortedIndices(vx);
+
+        ActiveRanks active = new ActiveRanks(hCount);
+        int entered = 0, left = 0;
+        for (int v : byX) {
+            Ruling vertical = verticals.get(v);
+            float x = vx[v];
+            // the ends of the horizontals within EPSILON of the vertical still reach it
+            while (entered < hCount && (enters[byEnter[entered]] < x || Utils.feq(enters[byEnter[entered]], x))) {
+                active.add(ranks[byEnter[entered++]], 1);
             }
-        });
-        
-        for (SortObject so : sos) {
-            switch(so.type) {
-            case VERTICAL:
-                for (Map.Entry<Ruling, Boolean> h : tree.entrySet()) {
-                    Point2D i = h.getKey().intersectionPoint(so.ruling);
-                    if (i == null) {
-                        continue;
-                    }
-                    rv.put(i, 
-                           new Ruling[] { h.getKey().expand(PERPENDICULAR_PIXEL_EXPAND_AMOUNT), 
-                                          so.ruling.expand(PERPENDICULAR_PIXEL_EXPAND_AMOUNT) });
+            while (left < hCount && leaves[byLeave[left]] < x && !Utils.feq(leaves[byLeave[left]], x)) {
+                active.add(ranks[byLeave[left++]], -1);
+            }
+
+            float vy1 = vertical.y1 - PERPENDICULAR_PIXEL_EXPAND_AMOUNT;
+            float vy2 = vertical.y2 + PERPENDICULAR_PIXEL_EXPAND_AMOUNT;
+            int to = Utils.upperBound(rankedY, Math.max(vy1, vy2) + maxSlope);
+            for (int rank = active.next(Utils.lowerBound(rankedY, Math.min(vy1, vy2) - maxSlope), to); rank >= 0;
+                 rank = active.next(rank + 1, to)) {
+                int h = byY[rank];
+                if (!Line2D.linesIntersect(hx1[h], hy1[h], hx2[h], hy2[h], vertical.x1, vy1, vertical.x2, vy2)) {
+                    continue;
                 }
-                break;
-            case HRIGHT:
-                tree.remove(so.ruling);
-                break;
-            case HLEFT:
-                tree.put(so.ruling, true);
-                break;
+                Ruling horizontal = horizontals.get(h);
+                Point2D i = horizontal.horizontal() && vertical.vertical()
+                        ? new Point2D.Float(vertical.x1, horizontal.y1)
+                        : horizontal.intersectionPoint(vertical);
+                rv.put(i,
+                       new Ruling[] { horizontal.expand(PERPENDICULAR_PIXEL_EXPAND_AMOUNT),
+                                      vertical.expand(PERPENDICULAR_PIXEL_EXPAND_AMOUNT) });
             }
         }
-        
+
         return rv;
-        
+    }
+
+    /**
+     * The ranks of the horizontals that span the sweep line, as a tree of counts over the ranks.
+     */
+    private static final class ActiveRanks {
+
+        private final int size;
+        private final int[] counts;
+
+        ActiveRanks(int count) {
+            int size = 1;
+            while (size < count) {
+                size <<= 1;
+            }
+            this.size = size;
+            this.counts = new int[2 * size];
+        }
+
+        void add(int rank, int delta) {
+            for (int node = rank + size; node > 0; node >>= 1) {
+                counts[node] += delta;
+            }
+        }
+
+        // the first active rank in [from, to), or -1
+        int next(int from, int to) {
+            return next(1, 0, size, from, to);
+        }
+
+        private int next(int node, int nodeFrom, int nodeTo, int from, int to) {
+            if (counts[node] == 0 || nodeTo <= from || nodeFrom >= to) {
+                return -1;
+            }
+            if (node >= size) {
+                return nodeFrom;
+            }
+            int middle = (nodeFrom + nodeTo) >>> 1;
+            int rank = next(2 * node, nodeFrom, middle, from, to);
+            return rank >= 0 ? rank : next(2 * node + 1, middle, nodeTo, from, to);
+        }
+
     }
 
     public static List<Ruling> collapseOrientedRulings(List<Ruling> lines) {
         return collapseOrientedRulings(lines, COLINEAR_OR_PARALLEL_PIXEL_EXPAND_AMOUNT);
     }
     
+    /**
+     * Merges the rulings that are at the same position and nearly intersect, in the order of their position then start.
+     * The first ruling of every merged run is extended to cover the run and returned; the rulings without length are dropped.
+     */
     public static List<Ruling> collapseOrientedRulings(List<Ruling> lines, int expandAmount) {
         ArrayList<Ruling> rv = new ArrayList<>();
-        Collections.sort(lines, new Comparator<Ruling>() {
-            @Override
-            public int compare(Ruling a, Ruling b) {
-                final float diff = a.getPosition() - b.getPosition();
-                return java.lang.Float.compare(diff == 0 ? a.getStart() - b.getStart() : diff, 0f);
+        int count = lines.size();
+        if (count < 2) {
+            if (count == 1 && lines.get(0).length() != 0) {
+                rv.add(lines.get(0));
             }
-        });
+            return rv;
+        }
 
-        for (Ruling next_line : lines) {
-            Ruling last = rv.isEmpty() ? null : rv.get(rv.size() - 1);
+        // the orientations never change: merging only extends the rulings along their own axis
+        boolean[] vertical = new boolean[count];
+        float[] positions = new float[count];
+        float[] starts = new float[count];
+        for (int i = 0; i < count; i++) {
+            Ruling line = lines.get(i);
+            // throws for the oblique rulings, and -0 and 0 are the same position
+            positions[i] = line.getPosition() + 0f;
+            starts[i] = line.getStart() + 0f;
+            vertical[i] = line.vertical();
+        }
+
+        // by position, then start, then index
+        int[] byStart = Utils.sortedIndices(starts);
+        float[] positionsByStart = new float[count];
+        for (int k = 0; k < count; k++) {
+            positionsByStart[k] = positions[byStart[k]];
+        }
+        int[] order = Utils.sortedIndices(positionsByStart);
+
+        Ruling last = null;
+        float lastPosition = 0;
+        boolean lastVertical = false;
+        for (int k = 0; k < count; k++) {
+            int i = byStart[order[k]];
+            Ruling next = lines.get(i);
             // if current line colinear with next, and are "close enough": expand current line
-            if (last != null && Utils.feq(next_line.getPosition(), last.getPosition()) && last.nearlyIntersects(next_line, expandAmount)) {
-                final float lastStart = last.getStart();
-                final float lastEnd = last.getEnd();
+            if (last != null && Utils.feq(positions[i], lastPosition) && nearlyIntersects(last, next, expandAmount)) {
+                final float lastStart = lastVertical ? last.y1 : last.x1;
+                final float lastEnd = lastVertical ? last.y2 : last.x2;
+                final float nextStart = vertical[i] ? next.y1 : next.x1;
+                final float nextEnd = vertical[i] ? next.y2 : next.x2;
 
-                final boolean lastFlipped = lastStart            > lastEnd;
-                final boolean nextFlipped = next_line.getStart() > next_line.getEnd();
+                final boolean lastFlipped = lastStart > lastEnd;
+                final boolean nextFlipped = nextStart > nextEnd;
 
                 boolean differentDirections = nextFlipped != lastFlipped;
-                float nextS = differentDirections ? next_line.getEnd()   : next_line.getStart();
-                float nextE = differentDirections ? next_line.getStart() : next_line.getEnd();
+                float nextS = differentDirections ? nextEnd : nextStart;
+                float nextE = differentDirections ? nextStart : nextEnd;
 
                 final float newStart = lastFlipped ? Math.max(nextS, lastStart) : Math.min(nextS, lastStart);
                 final float newEnd   = lastFlipped ? Math.min(nextE, lastEnd)   : Math.max(nextE, lastEnd);
-                last.setStartEnd(newStart, newEnd);
+                if (lastVertical) {
+                    last.setLine(last.x1, newStart, last.x2, newEnd);
+                } else {
+                    last.setLine(newStart, last.y1, newEnd, last.y2);
+                }
                 assert !last.oblique();
             }
-            else if (next_line.length() == 0) {
-                continue;
-            }
             else {
-                rv.add(next_line);
+                // an oriented ruling always has a length
+                last = next;
+                lastPosition = positions[i];
+                lastVertical = vertical[i];
+                rv.add(next);
             }
         }
         return rv;
     }
+
+    /**
+     * {@link #nearlyIntersects(Ruling, int)} without the clones of {@link #expand(float)} when both rulings are
+     * only vertical or only horizontal, and stay so once expanded.
+     */
+    private static boolean nearlyIntersects(Ruling a, Ruling b, int expandAmount) {
+        float amount = expandAmount;
+        int orientation = expandedOrientation(a, amount);
+        if (orientation == 0 || orientation != expandedOrientation(b, amount)) {
+            return a.nearlyIntersects(b, expandAmount);
+        }
+        if (a.intersectsLine(b)) {
+            return true;
+        }
+        // parallel rulings are both expanded along their axis
+        if (orientation == 1) {
+            return Line2D.linesIntersect(b.x1, b.y1 - amount, b.x2, b.y2 + amount, a.x1, a.y1 - amount, a.x2, a.y2 + amount);
+        }
+        return Line2D.linesIntersect(b.x1 - amount, b.y1, b.x2 + amount, b.y2, a.x1 - amount, a.y1, a.x2 + amount, a.y2);
+    }
+
+    // 1 if the ruling is only vertical, 2 if it is only horizontal, and moving its start by -amount keeps it so;
+    // 0 otherwise, as expand(amount) would then extend its end along the other axis, or throw
+    private static int expandedOrientation(Ruling r, float amount) {
+        boolean vertical = Utils.feq(r.x1, r.x2);
+        boolean horizontal = Utils.feq(r.y1, r.y2);
+        if (vertical == horizontal) {
+            return 0;
+        }
+        if (vertical) {
+            return r.x1 == r.x2 && r.y1 - amount == r.y2 ? 0 : 1;
+        }
+        return Utils.feq(r.x1 - amount, r.x2) ? 0 : 2;
+    }
 }
@@ -0,0 +1,194 @@
+package technology.tabula;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The positions of the glyphs shown on a page, hashed by text and by cell of a grid,
+ * to find the copies of a glyph that some PDFs draw over it, slightly offset, to fake bold text.
+ * <p>
+ * A text of a single code point is keyed by that code point, other texts by an id of their own.
+ * <p>
+ * Not thread-safe, like the {@link TextStripper} that fills it.
+ */
+final class ShownGlyphs {
+
+    private static final float CELL_SIZE = 4f;
+    // past this many cells, the glyphs are looked up one by one
+    private static final int MAX_CELLS_LOOKED_UP = 256;
+    private static final int INITIAL_CAPACITY = 256;
+    private static final int NONE = -1;
+
+    // the glyphs, chained by cell
+    private int size;
+    private float[] xs = new float[INITIAL_CAPACITY];
+    private float[] ys = new float[INITIAL_CAPACITY];
+    private int[] textIds = new int[INITIAL_CAPACITY];
+    private int[] nextInCell = new int[INITIAL_CAPACITY];
+
+    // the cells, in an open addressing table
+    private int cellCount;
+    private int[] cellTextIds = new int[INITIAL_CAPACITY];
+    private int[] cellXs = new int[INITIAL_CAPACITY];
+    private int[] cellYs = new int[INITIAL_CAPACITY];
+    private int[] cellHeads = newCellHeads(INITIAL_CAPACITY);
+
+    // the ids of the texts that aren't a single code point, all negative
+    private final Map<String, Integer> textIdsByText = new HashMap<>();
+
+    /**
+     * Adds a glyph, unless a glyph of the same text was shown within {@code tolerance} of it:
+     * at an x in {@code [x - tolerance, x + tolerance)} and a y in {@code [y - tolerance, y + tolerance)}.
+     *
+     * @return whether the glyph was added
+     */
+    boolean add(String text, float x, float y, float tolerance) {
+        int textId = textIdOf(text);
+        if (tolerance > 0 && isShown(textId, x, y, tolerance)) {
+            return false;
+        }
+
+        if (size == xs.length) {
+            grow();
+        }
+        xs[size] = x;
+        ys[size] = y;
+        textIds[size] = textId;
+        int cell = cellOf(textId, cellOf(x), cellOf(y), true);
+        nextInCell[size] = cellHeads[cell];
+        cellHeads[cell] = size;
+        size++;
+        return true;
+    }
+
+    void clear() {
+        size = 0;
+        cellCount = 0;
+        Arrays.fill(cellHeads, NONE);
+        textIdsByText.clear();
+    }
+
+    // - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - //
+    private boolean isShown(int textId, float x, float y, float tolerance) {
+        float minX = x - tolerance, maxX = x + tolerance;
+        float minY = y - tolerance, maxY = y + tolerance;
+        int minCellX = cellOf(minX), minCellY = cellOf(minY);
+        long cellsX = (long) cellOf(maxX) - minCellX + 1, cellsY = (long) cellOf(maxY) - minCellY + 1;
+
+        if (cellsX > MAX_CELLS_LOOKED_UP || cellsY > MAX_CELLS_LOOKED_UP || cellsX * cellsY > MAX_CELLS_LOOKED_UP) {
+            for (int i = 0; i < size; i++) {
+                if (textIds[i] == textId && isWithin(i, minX, maxX, minY, maxY)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        for (int dx = 0; dx < cellsX; dx++) {
+            for (int dy = 0; dy < cellsY; dy++) {
+                int cell = cellOf(textId, minCellX + dx, minCellY + dy, false);
+                if (cell == NONE) {
+                    continue;
+                }
+                for (int i = cellHeads[cell]; i != NONE; i = nextInCell[i]) {
+                    if (isWithin(i, minX, maxX, minY, maxY)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean isWithin(int i, float minX, float maxX, float minY, float maxY) {
+        return xs[i] >= minX && xs[i] < maxX && ys[i] >= minY && ys[i] < maxY;
+    }
+
+    private int textIdOf(String text) {
+        if (!text.isEmpty() && text.length() == Character.charCount(text.codePointAt(0))) {
+            return text.codePointAt(0);
+        }
+        Integer id = textIdsByText.get(text);
+        if (id == null) {
+            id = -1 - textIdsByText.size();
+            textIdsByText.put(text, id);
+        }
+        return id;
+    }
+
+    private static int cellOf(float coordinate) {
+        // saturates far off the page, and NaN goes to cell 0
+        return (int) Math.floor(coordinate / CELL_SIZE);
+    }
+
+    // the slot of a cell, added when asked for, or NONE
+    private int cellOf(int textId, int cellX, int cellY, boolean add) {
+        int mask = cellHeads.length - 1;
+        int slot = hash(textId, cellX, cellY) & mask;
+        while (cellHeads[slot] != NONE) {
+            if (cellTextIds[slot] == textId && cellXs[slot] == cellX && cellYs[slot] == cellY) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (!add) {
+            return NONE;
+        }
+
+        if (2 * (cellCount + 1) > cellHeads.length) {
+            rehash();
+            return cellOf(textId, cellX, cellY, true);
+        }
+        cellTextIds[slot] = textId;
+        cellXs[slot] = cellX;
+        cellYs[slot] = cellY;
+        cellCount++;
+        return slot;
+    }
+
+    private static int hash(int textId, int cellX, int cellY) {
+        int h = textId * 0x9E3779B1 + cellX * 0x85EBCA6B + cellY * 0xC2B2AE35;
+        return h ^ (h >>> 16);
+    }
+
+    // a new cell is only added for a glyph, so its head is set right after
+    private void rehash() {
+        int[] oldTextIds = cellTextIds, oldXs = cellXs, oldYs = cellYs, oldHeads = cellHeads;
+        int capacity = oldHeads.length * 2;
+        cellTextIds = new int[capacity];
+        cellXs = new int[capacity];
+        cellYs = new int[capacity];
+        cellHeads = newCellHeads(capacity);
+
+        int mask = capacity - 1;
+        for (int old = 0; old < oldHeads.length; old++) {
+            if (oldHeads[old] == NONE) {
+                continue;
+            }
+            int slot = hash(oldTextIds[old], oldXs[old], oldYs[old]) & mask;
+            while (cellHeads[slot] != NONE) {
+                slot = (slot + 1) & mask;
+            }
+            cellTextIds[slot] = oldTextIds[old];
+            cellXs[slot] = oldXs[old];
+            cellYs[slot] = oldYs[old];
+            cellHeads[slot] = oldHeads[old];
+        }
+    }
+
+    private static int[] newCellHeads(int capacity) {
+        int[] heads = new int[capacity];
+        Arrays.fill(heads, NONE);
+        return heads;
+    }
+
+    private void grow() {
+        int capacity = xs.length * 2;
+        xs = Arrays.copyOf(xs, capacity);
+        ys = Arrays.copyOf(ys, capacity);
+        textIds = Arrays.copyOf(textIds, capacity);
+        nextInCell = Arrays.copyOf(nextInCell, capacity);
+    }
+
+}
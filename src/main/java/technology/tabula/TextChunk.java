@@ -4,7 +4,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.function.Consumer;
 import java.text.Normalizer;
 
 @SuppressWarnings("serial")
@@ -32,33 +32,32 @@ public class TextChunk extends RectangularTextContainer<TextElement> {
         LTR, NONE, RTL
     }
 
-    // I hate Java so bad.
-    // we're making this HashMap static! which requires really funky initialization per http://stackoverflow.com/questions/6802483/how-to-directly-initialize-a-hashmap-in-a-literal-way/6802502#6802502
-    private static final HashMap<Byte, DirectionalityOptions> directionalities;
+    // the directionality options by the directionality of Character.getDirectionality(), as an unsigned byte;
+    // null for the directionalities that are missing, like the isolates added in Unicode 6.3
+    private static final DirectionalityOptions[] directionalities = new DirectionalityOptions[256];
 
     static {
-        directionalities = new HashMap<>();
         // BCT = bidirectional character type
-        directionalities.put(java.lang.Character.DIRECTIONALITY_ARABIC_NUMBER, DirectionalityOptions.LTR);               // Weak BCT    "AN" in the Unicode specification.
-        directionalities.put(java.lang.Character.DIRECTIONALITY_BOUNDARY_NEUTRAL, DirectionalityOptions.NONE);            // Weak BCT    "BN" in the Unicode specification.
-        directionalities.put(java.lang.Character.DIRECTIONALITY_COMMON_NUMBER_SEPARATOR, DirectionalityOptions.LTR);     // Weak BCT    "CS" in the Unicode specification.
-        directionalities.put(java.lang.Character.DIRECTIONALITY_EUROPEAN_NUMBER, DirectionalityOptions.LTR);             // Weak BCT    "EN" in the Unicode specification.
-        directionalities.put(java.lang.Character.DIRECTIONALITY_EUROPEAN_NUMBER_SEPARATOR, DirectionalityOptions.LTR);   // Weak BCT    "ES" in the Unicode specification.
-        directionalities.put(java.lang.Character.DIRECTIONALITY_EUROPEAN_NUMBER_TERMINATOR, DirectionalityOptions.LTR);  // Weak BCT    "ET" in the Unicode specification.
-        directionalities.put(java.lang.Character.DIRECTIONALITY_LEFT_TO_RIGHT, DirectionalityOptions.LTR);              // Strong BCT  "L" in the Unicode specification.
-        directionalities.put(java.lang.Character.DIRECTIONALITY_LEFT_TO_RIGHT_EMBEDDING, DirectionalityOptions.LTR);     // Strong BCT  "LRE" in the Unicode specification.
-        directionalities.put(java.lang.Character.DIRECTIONALITY_LEFT_TO_RIGHT_OVERRIDE, DirectionalityOptions.LTR);      // Strong BCT  "LRO" in the Unicode specification.
-        directionalities.put(java.lang.Character.DIRECTIONALITY_NONSPACING_MARK, DirectionalityOptions.NONE);             // Weak BCT    "NSM" in the Unicode specification.
-        directionalities.put(java.lang.Character.DIRECTIONALITY_OTHER_NEUTRALS, DirectionalityOptions.NONE);              // Neutral BCT "ON" in the Unicode specification.
-        directionalities.put(java.lang.Character.DIRECTIONALITY_PARAGRAPH_SEPARATOR, DirectionalityOptions.NONE);         // Neutral BCT "B" in the Unicode specification.
-        directionalities.put(java.lang.Character.DIRECTIONALITY_POP_DIRECTIONAL_FORMAT, DirectionalityOptions.NONE);      // Weak BCT    "PDF" in the Unicode specification.
-        directionalities.put(java.lang.Character.DIRECTIONALITY_RIGHT_TO_LEFT, DirectionalityOptions.RTL);              // Strong BCT  "R" in the Unicode specification.
-        directionalities.put(java.lang.Character.DIRECTIONALITY_RIGHT_TO_LEFT_ARABIC, DirectionalityOptions.RTL);       // Strong BCT  "AL" in the Unicode specification.
-        directionalities.put(java.lang.Character.DIRECTIONALITY_RIGHT_TO_LEFT_EMBEDDING, DirectionalityOptions.RTL);    // Strong BCT  "RLE" in the Unicode specification.
-        directionalities.put(java.lang.Character.DIRECTIONALITY_RIGHT_TO_LEFT_OVERRIDE, DirectionalityOptions.RTL);     // Strong BCT  "RLO" in the Unicode specification.
-        directionalities.put(java.lang.Character.DIRECTIONALITY_SEGMENT_SEPARATOR, DirectionalityOptions.RTL);          // Neutral BCT "S" in the Unicode specification.
-        directionalities.put(java.lang.Character.DIRECTIONALITY_UNDEFINED, DirectionalityOptions.NONE);                   // Undefined BCT.
-        directionalities.put(java.lang.Character.DIRECTIONALITY_WHITESPACE, DirectionalityOptions.NONE);                  // Neutral BCT "WS" in the Unicode specification.
+        directionalities[java.lang.Character.DIRECTIONALITY_ARABIC_NUMBER & 0xff] = DirectionalityOptions.LTR;               // Weak BCT    "AN" in the Unicode specification.
+        directionalities[java.lang.Character.DIRECTIONALITY_BOUNDARY_NEUTRAL & 0xff] = DirectionalityOptions.NONE;            // Weak BCT    "BN" in the Unicode specification.
+        directionalities[java.lang.Character.DIRECTIONALITY_COMMON_NUMBER_SEPARATOR & 0xff] = DirectionalityOptions.LTR;     // Weak BCT    "CS" in the Unicode specification.
+        directionalities[java.lang.Character.DIRECTIONALITY_EUROPEAN_NUMBER & 0xff] = DirectionalityOptions.LTR;             // Weak BCT    "EN" in the Unicode specification.
+        directionalities[java.lang.Character.DIRECTIONALITY_EUROPEAN_NUMBER_SEPARATOR & 0xff] = DirectionalityOptions.LTR;   // Weak BCT    "ES" in the Unicode specification.
+        directionalities[java.lang.Character.DIRECTIONALITY_EUROPEAN_NUMBER_TERMINATOR & 0xff] = DirectionalityOptions.LTR;  // Weak BCT    "ET" in the Unicode specification.
+        directionalities[java.lang.Character.DIRECTIONALITY_LEFT_TO_RIGHT & 0xff] = DirectionalityOptions.LTR;              // Strong BCT  "L" in the Unicode specification.
+        directionalities[java.lang.Character.DIRECTIONALITY_LEFT_TO_RIGHT_EMBEDDING & 0xff] = DirectionalityOptions.LTR;     // Strong BCT  "LRE" in the Unicode specification.
+        directionalities[java.lang.Character.DIRECTIONALITY_LEFT_TO_RIGHT_OVERRIDE & 0xff] = DirectionalityOptions.LTR;      // Strong BCT  "LRO" in the Unicode specification.
+        directionalities[java.lang.Character.DIRECTIONALITY_NONSPACING_MARK & 0xff] = DirectionalityOptions.NONE;             // Weak BCT    "NSM" in the Unicode specification.
+        directionalities[java.lang.Character.DIRECTIONALITY_OTHER_NEUTRALS & 0xff] = DirectionalityOptions.NONE;              // Neutral BCT "ON" in the Unicode specification.
+        directionalities[java.lang.Character.DIRECTIONALITY_PARAGRAPH_SEPARATOR & 0xff] = DirectionalityOptions.NONE;         // Neutral BCT "B" in the Unicode specification.
+        directionalities[java.lang.Character.DIRECTIONALITY_POP_DIRECTIONAL_FORMAT & 0xff] = DirectionalityOptions.NONE;      // Weak BCT    "PDF" in the Unicode specification.
+        directionalities[java.lang.Character.DIRECTIONALITY_RIGHT_TO_LEFT & 0xff] = DirectionalityOptions.RTL;              // Strong BCT  "R" in the Unicode specification.
+        directionalities[java.lang.Character.DIRECTIONALITY_RIGHT_TO_LEFT_ARABIC & 0xff] = DirectionalityOptions.RTL;       // Strong BCT  "AL" in the Unicode specification.
+        directionalities[java.lang.Character.DIRECTIONALITY_RIGHT_TO_LEFT_EMBEDDING & 0xff] = DirectionalityOptions.RTL;    // Strong BCT  "RLE" in the Unicode specification.
+        directionalities[java.lang.Character.DIRECTIONALITY_RIGHT_TO_LEFT_OVERRIDE & 0xff] = DirectionalityOptions.RTL;     // Strong BCT  "RLO" in the Unicode specification.
+        directionalities[java.lang.Character.DIRECTIONALITY_SEGMENT_SEPARATOR & 0xff] = DirectionalityOptions.RTL;          // Neutral BCT "S" in the Unicode specification.
+        directionalities[java.lang.Character.DIRECTIONALITY_UNDEFINED & 0xff] = DirectionalityOptions.NONE;                   // Undefined BCT.
+        directionalities[java.lang.Character.DIRECTIONALITY_WHITESPACE & 0xff] = DirectionalityOptions.NONE;                  // Neutral BCT "WS" in the Unicode specification.
     }
 
     /**
@@ -83,12 +82,12 @@ public class TextChunk extends RectangularTextContainer<TextElement> {
 
             if (buff.isEmpty()) {
                 buff.add(te);
-                buffDirectionality = directionalities.get(Character.getDirectionality(te.getText().charAt(0)));
+                buffDirectionality = directionalityOf(te.getText().charAt(0));
             } else {
                 if (buffDirectionality == DirectionalityOptions.NONE) {
-                    buffDirectionality = directionalities.get(Character.getDirectionality(te.getText().charAt(0)));
+                    buffDirectionality = directionalityOf(te.getText().charAt(0));
                 }
-                DirectionalityOptions teDirectionality = directionalities.get(Character.getDirectionality(te.getText().charAt(0)));
+                DirectionalityOptions teDirectionality = directionalityOf(te.getText().charAt(0));
 
                 if (teDirectionality == buffDirectionality || teDirectionality == DirectionalityOptions.NONE) {
                     if (Character.getDirectionality(te.getText().charAt(0)) == java.lang.Character.DIRECTIONALITY_WHITESPACE && (buffDirectionality == (isLtrDominant ? DirectionalityOptions.RTL : DirectionalityOptions.LTR))) {
@@ -104,7 +103,7 @@ public class TextChunk extends RectangularTextContainer<TextElement> {
                     chunks.add(buff);
 
                     // and start a new one
-                    buffDirectionality = directionalities.get(Character.getDirectionality(te.getText().charAt(0)));
+                    buffDirectionality = directionalityOf(te.getText().charAt(0));
                     buff = new ArrayList<>();
                     buff.add(te);
                 }
@@ -124,6 +123,42 @@ public class TextChunk extends RectangularTextContainer<TextElement> {
         return new TextChunk(everything);
     }
 
+    private static DirectionalityOptions directionalityOf(char c) {
+        return directionalities[Character.getDirectionality(c) & 0xff];
+    }
+
+    /**
+     * Whether none of the characters is strong right-to-left, and the first of every text element is left-to-right
+     * or neutral: then the chunk is LTR dominant, and {@link #groupByDirectionality(Boolean)} keeps its order.
+     */
+    private boolean isLeftToRight() {
+        for (TextElement te : this.getTextElements()) {
+            String text = te.getText();
+            if (text.isEmpty()) {
+                return false;
+            }
+            DirectionalityOptions first = directionalityOf(text.charAt(0));
+            if (first != DirectionalityOptions.LTR && first != DirectionalityOptions.NONE) {
+                return false;
+            }
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                // ASCII is never strong right-to-left
+                if (c >= 0x80 && isStrongRightToLeft(Character.getDirectionality(c))) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static boolean isStrongRightToLeft(byte dir) {
+        return (dir == Character.DIRECTIONALITY_RIGHT_TO_LEFT) ||
+                (dir == Character.DIRECTIONALITY_RIGHT_TO_LEFT_ARABIC) ||
+                (dir == Character.DIRECTIONALITY_RIGHT_TO_LEFT_EMBEDDING) ||
+                (dir == Character.DIRECTIONALITY_RIGHT_TO_LEFT_OVERRIDE);
+    }
+
     @Override public int isLtrDominant() {
         int ltrCnt = 0;
         int rtlCnt = 0;
@@ -135,10 +170,7 @@ public class TextChunk extends RectangularTextContainer<TextElement> {
                         (dir == Character.DIRECTIONALITY_LEFT_TO_RIGHT_EMBEDDING) ||
                         (dir == Character.DIRECTIONALITY_LEFT_TO_RIGHT_OVERRIDE)) {
                     ltrCnt++;
-                } else if ((dir == Character.DIRECTIONALITY_RIGHT_TO_LEFT) ||
-                        (dir == Character.DIRECTIONALITY_RIGHT_TO_LEFT_ARABIC) ||
-                        (dir == Character.DIRECTIONALITY_RIGHT_TO_LEFT_EMBEDDING) ||
-                        (dir == Character.DIRECTIONALITY_RIGHT_TO_LEFT_OVERRIDE)) {
+                } else if (isStrongRightToLeft(dir)) {
                     rtlCnt++;
                 }
             }
@@ -327,45 +359,112 @@ public class TextChunk extends RectangularTextContainer<TextElement> {
      * Here be dragons
      */
     public static List<TextChunk> mergeWords(List<TextElement> textElements, List<Ruling> verticalRulings) {
-
         List<TextChunk> textChunks = new ArrayList<>();
+        WordMerger merger = new WordMerger(verticalRulings, textChunks::add);
+        for (TextElement textElement : textElements) {
+            merger.add(textElement);
+        }
+        merger.finish();
+        return textChunks;
+    }
+
+    private static boolean verticallyOverlapsRuling(TextElement te, Ruling r) {
+        return Math.max(0, Math.min(te.getBottom(), r.getY2()) - Math.max(te.getTop(), r.getY1())) > 0;
+    }
+
+    /**
+     * The vertical rulings of {@link #mergeWords(List, List)} sorted by position,
+     * so that only the rulings between two characters are looked at.
+     */
+    private static final class VerticalRulings {
+
+        private final Ruling[] rulings;
+        private final float[] positions;
+
+        VerticalRulings(List<Ruling> verticalRulings) {
+            float[] unsortedPositions = new float[verticalRulings.size()];
+            for (int i = 0; i < unsortedPositions.length; i++) {
+                unsortedPositions[i] = verticalRulings.get(i).getPosition();
+            }
+            int[] order = Utils.sortedIndices(unsortedPositions);
+            rulings = new Ruling[order.length];
+            positions = new float[order.length];
+            for (int k = 0; k < order.length; k++) {
+                rulings[k] = verticalRulings.get(order[k]);
+                positions[k] = unsortedPositions[order[k]];
+            }
+        }
 
-        if (textElements.isEmpty()) {
-            return textChunks;
+        /**
+         * Whether a ruling lies strictly between the two characters. Going right, it must also overlap both of them
+         * vertically; going left, as to the next line, any ruling in between counts.
+         */
+        boolean across(TextElement prevChar, TextElement chr) {
+            if (prevChar.x < chr.x) {
+                for (int k = Utils.upperBound(positions, prevChar.x); k < positions.length && positions[k] < chr.x; k++) {
+                    if (verticallyOverlapsRuling(prevChar, rulings[k]) && verticallyOverlapsRuling(chr, rulings[k])) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+            if (prevChar.x > chr.x) {
+                int k = Utils.upperBound(positions, chr.x);
+                return k < positions.length && positions[k] < prevChar.x;
+            }
+            return false;
+        }
+
+    }
+
+    /**
+     * Merges the characters into words as they come, in reading order, with the heuristics of
+     * {@link #mergeWords(List, List)}, ported from PDFBox's PDFTextStripper.writePage, with modifications.
+     * Every word is grouped by directionality and handed over as soon as a character starts the next one.
+     */
+    static final class WordMerger {
+
+        private final VerticalRulings verticalRulings;
+        private final Consumer<TextChunk> words;
+
+        private TextChunk currentChunk;
+        private float previousAveCharWidth;
+        private float endOfLastTextX;
+        private float maxYForLine;
+        private float maxHeightForLine;
+        private float minYTopForLine;
+        private float lastWordSpacing = -1;
+
+        WordMerger(List<Ruling> verticalRulings, Consumer<TextChunk> words) {
+            this.verticalRulings = new VerticalRulings(verticalRulings);
+            this.words = words;
         }
 
-        // it's a problem that this `remove` is side-effecty
-        // other things depend on `textElements` and it can sometimes lead to the first textElement in textElement
-        // not appearing in the final output because it's been removed here.
-        // https://github.com/tabulapdf/tabula-java/issues/78
-        List<TextElement> copyOfTextElements = new ArrayList<>(textElements);
-        textChunks.add(new TextChunk(copyOfTextElements.remove(0)));
-        TextChunk firstTC = textChunks.get(0);
-
-        float previousAveCharWidth = (float) firstTC.getWidth();
-        float endOfLastTextX = firstTC.getRight();
-        float maxYForLine = firstTC.getBottom();
-        float maxHeightForLine = (float) firstTC.getHeight();
-        float minYTopForLine = firstTC.getTop();
-        float lastWordSpacing = -1;
-        float wordSpacing, deltaSpace, averageCharWidth, deltaCharWidth;
-        float expectedStartOfNextWordX, dist;
-        TextElement sp, prevChar;
-        TextChunk currentChunk;
-        boolean sameLine, acrossVerticalRuling;
-
-        for (TextElement chr : copyOfTextElements) {
-            currentChunk = textChunks.get(textChunks.size() - 1);
-            prevChar = currentChunk.textElements.get(currentChunk.textElements.size() - 1);
+        void add(TextElement chr) {
+            if (currentChunk == null) {
+                currentChunk = new TextChunk(chr);
+                previousAveCharWidth = (float) currentChunk.getWidth();
+                endOfLastTextX = currentChunk.getRight();
+                maxYForLine = currentChunk.getBottom();
+                maxHeightForLine = (float) currentChunk.getHeight();
+                minYTopForLine = currentChunk.getTop();
+                return;
+            }
+
+            float wordSpacing, deltaSpace, averageCharWidth, deltaCharWidth;
+            float expectedStartOfNextWordX, dist;
+            TextElement sp;
+            TextElement prevChar = currentChunk.textElements.get(currentChunk.textElements.size() - 1);
+            boolean sameLine, acrossVerticalRuling;
 
             // if same char AND overlapped, skip
             if ((chr.getText().equals(prevChar.getText())) && (prevChar.overlapRatio(chr) > 0.5)) {
-                continue;
+                return;
             }
 
             // if chr is a space that overlaps with prevChar, skip
             if (chr.getText().equals(" ") && Utils.feq(prevChar.getLeft(), chr.getLeft()) && Utils.feq(prevChar.getTop(), chr.getTop())) {
-                continue;
+                return;
             }
 
             // Resets the average character width when we see a change in font
@@ -375,16 +474,7 @@ public class TextChunk extends RectangularTextContainer<TextElement> {
             }
 
             // is there any vertical ruling that goes across chr and prevChar?
-            acrossVerticalRuling = false;
-            for (Ruling r : verticalRulings) {
-                if (
-                        (verticallyOverlapsRuling(prevChar, r) && verticallyOverlapsRuling(chr, r)) &&
-                                (prevChar.x < r.getPosition() && chr.x > r.getPosition()) || (prevChar.x > r.getPosition() && chr.x < r.getPosition())
-                ) {
-                    acrossVerticalRuling = true;
-                    break;
-                }
-            }
+            acrossVerticalRuling = verticalRulings.across(prevChar, chr);
 
             // Estimate the expected width of the space based on the
             // space character with some margin.
@@ -460,27 +550,34 @@ public class TextChunk extends RectangularTextContainer<TextElement> {
                     (dist < 0 ? currentChunk.verticallyOverlaps(chr) : dist < wordSpacing)) {
                 currentChunk.add(chr);
             } else { // create a new chunk
-                textChunks.add(new TextChunk(chr));
+                emit();
+                currentChunk = new TextChunk(chr);
             }
 
             lastWordSpacing = wordSpacing;
             previousAveCharWidth = (float) (sp != null ? (averageCharWidth + sp.getWidth()) / 2.0f : averageCharWidth);
         }
 
+        /**
+         * Hands over the last word.
+         */
+        void finish() {
+            if (currentChunk != null) {
+                emit();
+                currentChunk = null;
+            }
+        }
 
-        List<TextChunk> textChunksSeparatedByDirectionality = new ArrayList<>();
-        // count up characters by directionality
-        for (TextChunk chunk : textChunks) {
+        private void emit() {
+            if (currentChunk.isLeftToRight()) {
+                // regrouping would build the same chunk again
+                words.accept(currentChunk);
+                return;
+            }
             // choose the dominant direction
-            boolean isLtrDominant = chunk.isLtrDominant() != -1; // treat neutral as LTR
-            TextChunk dirChunk = chunk.groupByDirectionality(isLtrDominant);
-            textChunksSeparatedByDirectionality.add(dirChunk);
+            boolean isLtrDominant = currentChunk.isLtrDominant() != -1; // treat neutral as LTR
+            words.accept(currentChunk.groupByDirectionality(isLtrDominant));
         }
 
-        return textChunksSeparatedByDirectionality;
-    }
-
-    private static boolean verticallyOverlapsRuling(TextElement te, Ruling r) {
-        return Math.max(0, Math.min(te.getBottom(), r.getY2()) - Math.max(te.getTop(), r.getY1())) > 0;
     }
 }
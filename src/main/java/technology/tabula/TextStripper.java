@@ -1,158 +1,178 @@
 package technology.tabula;
 
-import org.apache.fontbox.util.BoundingBox;
 import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.pdmodel.font.PDFont;
-import org.apache.pdfbox.pdmodel.font.PDFontDescriptor;
-import org.apache.pdfbox.pdmodel.font.PDType3Font;
-import org.apache.pdfbox.text.PDFTextStripper;
 import org.apache.pdfbox.text.TextPosition;
 
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.List;
 
-public class TextStripper extends PDFTextStripper {
+/**
+ * Collects the glyphs of a page as {@link TextElement}s.
+ * <p>
+ * Glyph positions are captured straight from the text showing operators by {@link ObjectExtractorStreamEngine};
+ * no text is built and nothing is sorted here, as the extracted elements are sorted by Tabula afterwards.
+ * Nor are the glyphs grouped by the article beads of the page, unlike PDFBox's {@code PDFTextStripper}:
+ * the beads only changed the order in which the glyphs were collected, which that sort makes up for.
+ * Only the last glyph is kept as a PDFBox {@code TextPosition}, until the next one shows that no diacritic
+ * will be merged into it; then it goes into a {@link GlyphStore}, which creates the {@code TextElement}s
+ * when they are asked for.
+ */
+public class TextStripper {
 
-    private static final String NBSP = "\u00A0";
     private static final float AVG_HEIGHT_MULT_THRESHOLD = 6.0f;
     private static final float MAX_BLANK_FONT_SIZE = 40.0f;
     private static final float MIN_BLANK_FONT_SIZE = 2.0f;
     private final PDDocument document;
-    private final ArrayList<TextElement> textElements;
-    private final RectangleSpatialIndex<TextElement> spatialIndex;
+    private final int pageNumber;
+    private final GlyphStore glyphs = new GlyphStore();
     private float minCharWidth = Float.MAX_VALUE;
     private float minCharHeight = Float.MAX_VALUE;
     private float totalHeight = 0.0f;
     private int countHeight = 0;
 
+    // glyphs of the current page, as pushed by ObjectExtractorStreamEngine
+    private final ShownGlyphs shownCharacters = new ShownGlyphs();
+    // the last glyph, kept until the next one as a diacritic may still be merged into it
+    private TextPosition lastTextPosition;
+
+    private final FontMetricsCache fontMetricsCache;
+    private PDFont lastFont;
+    private GlyphCodes lastGlyphCodes;
+
     public TextStripper(PDDocument document, int pageNumber) throws IOException {
-        super();
+        this(document, pageNumber, new FontMetricsCache());
+    }
+
+    TextStripper(PDDocument document, int pageNumber, FontMetricsCache fontMetricsCache) {
         this.document = document;
-        this.setStartPage(pageNumber);
-        this.setEndPage(pageNumber);
-        this.textElements = new ArrayList<>();
-        this.spatialIndex = new RectangleSpatialIndex<>();
+        this.pageNumber = pageNumber;
+        this.fontMetricsCache = fontMetricsCache;
     }
 
     public void process() throws IOException {
-        this.getText(this.document);
+        PDPage page = document.getPage(pageNumber - 1);
+        // only the text is wanted here, so the paths are neither turned into rulings nor clipped
+        new ObjectExtractorStreamEngine(page, this, false).processPage(page);
     }
 
-    @Override
-    protected void writeString(String string, List<TextPosition> textPositions) {
-        for (TextPosition textPosition : textPositions) {
-            if (textPosition == null) {
-                continue;
-            }
-
-            String c = textPosition.getUnicode();
+    // - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - //
+    void beginPage() {
+        lastTextPosition = null;
+        shownCharacters.clear();
+    }
 
-            // if c not printable, return
-            if (!isPrintable(c)) {
-                continue;
-            }
+    void addTextPosition(TextPosition text) {
+        if (isDuplicateOverlappingText(text)) {
+            return;
+        }
 
-            float h = textPosition.getHeightDir();
+        // some PDFs put diacritics into a separate Tj element, recombine them with their character
+        if (lastTextPosition == null) {
+            lastTextPosition = text;
+            return;
+        }
+        if (text.isDiacritic() && lastTextPosition.contains(text)) {
+            lastTextPosition.mergeDiacritic(text);
+        } else if (lastTextPosition.isDiacritic() && text.contains(lastTextPosition)) {
+            text.mergeDiacritic(lastTextPosition);
+            lastTextPosition = text;
+        } else {
+            addGlyph(lastTextPosition);
+            lastTextPosition = text;
+        }
+    }
 
-            if (c.equals(NBSP)) { // replace non-breaking space for space
-                c = " ";
-            }
+    void endPage() {
+        if (lastTextPosition != null) {
+            addGlyph(lastTextPosition);
+        }
+        lastTextPosition = null;
+        shownCharacters.clear();
+    }
 
-            float wos = textPosition.getWidthOfSpace();
-
-            TextElement te = new TextElement(Utils.round(textPosition.getYDirAdj() - h, 2),
-                    Utils.round(textPosition.getXDirAdj(), 2), Utils.round(textPosition.getWidthDirAdj(), 2),
-                    Utils.round(textPosition.getHeightDir(), 2), textPosition.getFont(), textPosition.getFontSizeInPt(), c,
-                    // workaround a possible bug in PDFBox:
-                    // https://issues.apache.org/jira/browse/PDFBOX-1755
-                    wos, textPosition.getDir());
-
-            this.minCharWidth = (float) Math.min(this.minCharWidth, te.getWidth());
-            this.minCharHeight = (float) Math.min(this.minCharHeight, te.getHeight());
-
-            countHeight++;
-            totalHeight += te.getHeight();
-            float avgHeight = totalHeight / countHeight;
-
-            // We have an issue where tall blank cells throw off the row height calculation
-            // Introspect a blank cell a bit here to see if it should be thrown away
-            if ((te.getText() == null || te.getText().trim().equals(""))) {
-                //if the cell height is more than AVG_HEIGHT_MULT_THRESHOLDxaverage, throw it away
-                if (avgHeight > 0
-                        && te.getHeight() >= (avgHeight * AVG_HEIGHT_MULT_THRESHOLD)) {
-                    continue;
-                }
-
-                // If the font size is outside of reasonable ranges, throw it away
-                if (textPosition.getFontSizeInPt() > MAX_BLANK_FONT_SIZE || textPosition.getFontSizeInPt() < MIN_BLANK_FONT_SIZE) {
-                    continue;
-                }
-            }
+    FontMetrics getFontMetrics(PDFont font) throws IOException {
+        return fontMetricsCache.get(font);
+    }
 
-            this.spatialIndex.add(te);
-            this.textElements.add(te);
-        }
+    // Some PDFs draw the same glyph several times, slightly offset, to fake bold text
+    private boolean isDuplicateOverlappingText(TextPosition text) {
+        String textCharacter = text.getUnicode();
+        float tolerance = text.getWidth() / textCharacter.length() / 3.0f;
+        return !shownCharacters.add(textCharacter, text.getX(), text.getY(), tolerance);
     }
 
-    @Override
-    protected float computeFontHeight(PDFont font) throws IOException {
-        BoundingBox bbox = font.getBoundingBox();
-        if (bbox.getLowerLeftY() < Short.MIN_VALUE) {
-            // PDFBOX-2158 and PDFBOX-3130
-            // files by Salmat eSolutions / ClibPDF Library
-            bbox.setLowerLeftY(-(bbox.getLowerLeftY() + 65536));
+    private void addGlyph(TextPosition textPosition) {
+        GlyphCodes.Glyph glyph = glyphOf(textPosition);
+
+        // if c not printable, return
+        if (!glyph.isPrintable()) {
+            return;
         }
-        // 1/2 the bbox is used as the height todo: why?
-        float glyphHeight = bbox.getHeight() / 2;
-
-        // sometimes the bbox has very high values, but CapHeight is OK
-        PDFontDescriptor fontDescriptor = font.getFontDescriptor();
-        if (fontDescriptor != null) {
-            float capHeight = fontDescriptor.getCapHeight();
-            if (Float.compare(capHeight, 0) != 0 &&
-                    (capHeight < glyphHeight || Float.compare(glyphHeight, 0) == 0)) {
-                glyphHeight = capHeight;
-            }
-            // PDFBOX-3464, PDFBOX-448:
-            // sometimes even CapHeight has very high value, but Ascent and Descent are ok
-            float ascent = fontDescriptor.getAscent();
-            float descent = fontDescriptor.getDescent();
-            if (ascent > 0 && descent < 0 &&
-                    ((ascent - descent) / 2 < glyphHeight || Float.compare(glyphHeight, 0) == 0)) {
-                glyphHeight = (ascent - descent) / 2;
+
+        // with a non-breaking space replaced by a space
+        String c = glyph.getText();
+
+        float y = Utils.round(textPosition.getYDirAdj() - textPosition.getHeightDir(), 2);
+        float x = Utils.round(textPosition.getXDirAdj(), 2);
+        float width = Utils.round(textPosition.getWidthDirAdj(), 2);
+        float height = Utils.round(textPosition.getHeightDir(), 2);
+
+        this.minCharWidth = Math.min(this.minCharWidth, width);
+        this.minCharHeight = Math.min(this.minCharHeight, height);
+
+        countHeight++;
+        totalHeight += height;
+        float avgHeight = totalHeight / countHeight;
+
+        // We have an issue where tall blank cells throw off the row height calculation
+        // Introspect a blank cell a bit here to see if it should be thrown away
+        if (glyph.isBlank()) {
+            //if the cell height is more than AVG_HEIGHT_MULT_THRESHOLDxaverage, throw it away
+            if (avgHeight > 0 && height >= (avgHeight * AVG_HEIGHT_MULT_THRESHOLD)) {
+                return;
             }
-        }
 
-        // transformPoint from glyph space -> text space
-        float height;
-        if (font instanceof PDType3Font) {
-            height = font.getFontMatrix().transformPoint(0, glyphHeight).y;
-        } else {
-            height = glyphHeight / 1000;
+            // If the font size is outside of reasonable ranges, throw it away
+            if (textPosition.getFontSizeInPt() > MAX_BLANK_FONT_SIZE || textPosition.getFontSizeInPt() < MIN_BLANK_FONT_SIZE) {
+                return;
+            }
         }
 
-        return height;
+        glyphs.add(y, x, width, height, textPosition.getFont(), textPosition.getFontSizeInPt(), c,
+                // workaround a possible bug in PDFBox:
+                // https://issues.apache.org/jira/browse/PDFBOX-1755
+                textPosition.getWidthOfSpace(), textPosition.getDir());
     }
 
-    private boolean isPrintable(String s) {
-        char c;
-        Character.UnicodeBlock block;
-        boolean printable = false;
-        for (int i = 0; i < s.length(); i++) {
-            c = s.charAt(i);
-            block = Character.UnicodeBlock.of(c);
-            printable |= !Character.isISOControl(c) && block != null && block != Character.UnicodeBlock.SPECIALS;
+    private GlyphCodes.Glyph glyphOf(TextPosition textPosition) {
+        int[] codes = textPosition.getCharacterCodes();
+        PDFont font = textPosition.getFont();
+        if (font == null || codes == null || codes.length != 1) {
+            return GlyphCodes.Glyph.of(textPosition.getUnicode());
+        }
+        // the glyphs of a font mostly come in runs
+        if (font != lastFont) {
+            lastFont = font;
+            lastGlyphCodes = fontMetricsCache.getGlyphCodes(font);
         }
-        return printable;
+        return lastGlyphCodes.get(codes[0], textPosition.getUnicode());
     }
 
+    /**
+     * @return the elements of the glyphs, in the order they were shown, which are all created
+     */
     public List<TextElement> getTextElements() {
-        return this.textElements;
+        return glyphs.getTextElements();
     }
 
     public RectangleSpatialIndex<TextElement> getSpatialIndex() {
-        return spatialIndex;
+        return glyphs.toSpatialIndex();
+    }
+
+    GlyphStore getGlyphs() {
+        return glyphs;
     }
 
     public float getMinCharWidth() {
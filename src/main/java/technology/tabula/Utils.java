@@ -2,7 +2,6 @@ package technology.tabula;
 
 import java.awt.Shape;
 import java.awt.geom.Line2D;
-import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
@@ -38,7 +37,28 @@ public class Utils {
         return (Math.abs(f1 - f2) < EPSILON);
     }
 
+    // the scales that round() applies in fixed point, exact as doubles and as floats
+    private static final double[] POWERS_OF_TEN = {1, 10, 100, 1e3, 1e4, 1e5, 1e6};
+
+    /**
+     * Rounds half up to {@code decimalPlace} decimals of {@code d} as written by {@link Double#toString(double)},
+     * so that 1.005 rounds to 1.01 even if the closest double is a bit smaller.
+     */
     public static float round(double d, int decimalPlace) {
+        if (decimalPlace >= 0 && decimalPlace < POWERS_OF_TEN.length) {
+            double scale = POWERS_OF_TEN[decimalPlace];
+            double magnitude = Math.abs(d);
+            // NaN and the infinities fail this test, and keep failing in BigDecimal
+            if (magnitude * scale < 1 << 22) {
+                // the closest double to the half unit is the one that reads as that half,
+                // and all the numbers of units fit in a float, which makes the division correctly rounded
+                long units = (long) (magnitude * scale);
+                if (magnitude >= (units + 0.5) / scale) {
+                    units++;
+                }
+                return (d < 0 ? -units : units) / (float) scale;
+            }
+        }
         BigDecimal bd = new BigDecimal(Double.toString(d));
         bd = bd.setScale(decimalPlace, BigDecimal.ROUND_HALF_UP);
         return bd.floatValue();
@@ -130,6 +150,102 @@ public class Utils {
         else list.sort(comparator);
     }
 
+    /**
+     * Sorts the glyphs of a page in the order of {@code sort(glyphs, Rectangle.ILL_DEFINED_ORDER)}, which is only
+     * well-defined when the glyphs fall into lines: every two glyphs of a line overlap vertically by more than
+     * the comparison threshold, no two glyphs of different lines do, and no two glyphs of a line share their x.
+     * Such glyphs are sorted by line and x over primitive keys, without comparing them; the others are left to
+     * the quicksort, whose order depends on the input.
+     */
+    static void sortInReadingOrder(List<TextElement> glyphs) {
+        int count = glyphs.size();
+        TextElement[] elements = glyphs.toArray(new TextElement[0]);
+        float[] tops = new float[count];
+        float[] bottoms = new float[count];
+        float[] xs = new float[count];
+        for (int i = 0; i < count; i++) {
+            tops[i] = elements[i].getTop();
+            bottoms[i] = elements[i].getBottom();
+            xs[i] = (float) elements[i].getX();
+        }
+
+        int[] order = readingOrder(tops, bottoms, xs);
+        if (order == null) {
+            sort(glyphs, Rectangle.ILL_DEFINED_ORDER);
+            return;
+        }
+        for (int k = 0; k < count; k++) {
+            glyphs.set(k, elements[order[k]]);
+        }
+    }
+
+    /**
+     * @return the indices of the boxes sorted by line then x, or null if they don't fall into such lines
+     * (see {@link #sortInReadingOrder(List)})
+     */
+    static int[] readingOrder(float[] tops, float[] bottoms, float[] xs) {
+        int count = xs.length;
+        if (count == 0) {
+            return new int[0];
+        }
+        float threshold = Rectangle.VERTICAL_COMPARISON_THRESHOLD;
+
+        // the lines are cut in the order of the bottoms; every line keeps the extent that all its boxes share,
+        // and its boxes must be below the boxes of the lines above, without overlapping them
+        int[] byBottom = sortedIndices(bottoms);
+        int[] lines = new int[count];
+        int line = 0;
+        float lineTop = tops[byBottom[0]];
+        float lineBottom = bottoms[byBottom[0]];
+        float bottomAbove = Float.NEGATIVE_INFINITY;
+        for (int k = 1; k < count; k++) {
+            int i = byBottom[k];
+            float top = Math.max(lineTop, tops[i]);
+            float bottom = Math.min(lineBottom, bottoms[i]);
+            if (bottom - top > threshold) {
+                lineTop = top;
+                lineBottom = bottom;
+            } else {
+                bottomAbove = bottoms[byBottom[k - 1]];
+                if (!(bottoms[i] > bottomAbove)) {
+                    return null;
+                }
+                line++;
+                lineTop = tops[i];
+                lineBottom = bottoms[i];
+            }
+            if (bottomAbove - tops[i] > threshold) {
+                return null;
+            }
+            lines[i] = line;
+        }
+
+        // the boxes by line, counted, then every line by x
+        int[] lineStarts = new int[line + 2];
+        for (int i = 0; i < count; i++) {
+            lineStarts[lines[i] + 1]++;
+        }
+        for (int l = 0; l <= line; l++) {
+            lineStarts[l + 1] += lineStarts[l];
+        }
+        int[] ends = Arrays.copyOf(lineStarts, line + 1);
+        long[] keys = new long[count];
+        for (int i = 0; i < count; i++) {
+            keys[ends[lines[i]]++] = ((long) sortableBits(xs[i]) << 32) | i;
+        }
+        int[] order = new int[count];
+        for (int l = 0; l <= line; l++) {
+            Arrays.sort(keys, lineStarts[l], lineStarts[l + 1]);
+            for (int k = lineStarts[l]; k < lineStarts[l + 1]; k++) {
+                if (k > lineStarts[l] && keys[k] >>> 32 == keys[k - 1] >>> 32) {
+                    return null;
+                }
+                order[k] = (int) keys[k];
+            }
+        }
+        return order;
+    }
+
     private static boolean useCustomQuickSort() {
         // taken from PDFBOX:
 
@@ -187,75 +303,116 @@ public class Utils {
     }
 
     public static void snapPoints(List<? extends Line2D.Float> rulings, float xThreshold, float yThreshold) {
+        if (rulings.isEmpty()) {
+            return;
+        }
 
-        // collect points and keep a Line -> p1,p2 map
-        Map<Line2D.Float, Point2D[]> linesToPoints = new HashMap<>();
-        List<Point2D> points = new ArrayList<>();
-        for (Line2D.Float r : rulings) {
-            Point2D p1 = r.getP1();
-            Point2D p2 = r.getP2();
-            linesToPoints.put(r, new Point2D[]{p1, p2});
-            points.add(p1);
-            points.add(p2);
+        // the end points of the rulings: ruling i goes from point 2i to point 2i + 1
+        int count = rulings.size() * 2;
+        float[] xs = new float[count];
+        float[] ys = new float[count];
+        for (int i = 0; i < rulings.size(); i++) {
+            Line2D.Float r = rulings.get(i);
+            xs[2 * i] = r.x1;
+            ys[2 * i] = r.y1;
+            xs[2 * i + 1] = r.x2;
+            ys[2 * i + 1] = r.y2;
         }
 
-        // snap by X
-        points.sort(Comparator.comparingDouble(Point2D::getX));
+        // the points with the same y stay in their order by x
+        int[] byX = sortedIndices(xs);
+        float[] ysByX = new float[count];
+        for (int k = 0; k < count; k++) {
+            ysByX[k] = ys[byX[k]];
+        }
+        int[] byY = sortedIndices(ysByX);
+        for (int k = 0; k < count; k++) {
+            byY[k] = byX[byY[k]];
+        }
 
-        List<List<Point2D>> groupedPoints = new ArrayList<>();
-        groupedPoints.add(new ArrayList<>(Collections.singletonList(points.get(0))));
+        snapSorted(xs, byX, xThreshold);
+        snapSorted(ys, byY, yThreshold);
 
-        for (Point2D p : points.subList(1, points.size() - 1)) {
-            List<Point2D> last = groupedPoints.get(groupedPoints.size() - 1);
-            if (Math.abs(p.getX() - last.get(0).getX()) < xThreshold) {
-                groupedPoints.get(groupedPoints.size() - 1).add(p);
-            } else {
-                groupedPoints.add(new ArrayList<>(Collections.singletonList(p)));
-            }
+        // a ruling listed twice ends up with the points of its last occurrence
+        for (int i = 0; i < rulings.size(); i++) {
+            rulings.get(i).setLine(xs[2 * i], ys[2 * i], xs[2 * i + 1], ys[2 * i + 1]);
         }
+    }
+
+    /**
+     * Replaces the values by the average of their group, in the given order: a group goes on while the values are
+     * within the threshold of its first value. The last value in the order is never snapped, nor grouped with others.
+     */
+    private static void snapSorted(float[] values, int[] order, float threshold) {
+        int last = order.length - 1;
+        int start = 0;
+        while (start < last) {
+            float first = values[order[start]];
+            int end = start + 1;
+            while (end < last && Math.abs((double) values[order[end]] - first) < threshold) {
+                end++;
+            }
 
-        for (List<Point2D> group : groupedPoints) {
-            float avgLoc = 0;
-            for (Point2D p : group) {
-                avgLoc += p.getX();
+            float average = 0;
+            for (int k = start; k < end; k++) {
+                average += values[order[k]];
             }
-            avgLoc /= group.size();
-            for (Point2D p : group) {
-                p.setLocation(avgLoc, p.getY());
+            average /= end - start;
+            for (int k = start; k < end; k++) {
+                values[order[k]] = average;
             }
+            start = end;
         }
+    }
 
-        // snap by Y
-        points.sort(Comparator.comparingDouble(Point2D::getY));
+    /**
+     * @return the indices of the values, sorted by value then index
+     */
+    static int[] sortedIndices(float[] values) {
+        long[] keys = new long[values.length];
+        for (int i = 0; i < values.length; i++) {
+            keys[i] = ((long) sortableBits(values[i]) << 32) | i;
+        }
+        Arrays.sort(keys);
+        int[] indices = new int[values.length];
+        for (int i = 0; i < values.length; i++) {
+            indices[i] = (int) keys[i];
+        }
+        return indices;
+    }
 
-        groupedPoints = new ArrayList<>();
-        groupedPoints.add(new ArrayList<>(Collections.singletonList(points.get(0))));
+    // order-preserving mapping of the float bits to an int, in the order of Float.compare()
+    private static int sortableBits(float value) {
+        int bits = Float.floatToIntBits(value);
+        return bits ^ ((bits >> 31) & 0x7fffffff);
+    }
 
-        for (Point2D p : points.subList(1, points.size() - 1)) {
-            List<Point2D> last = groupedPoints.get(groupedPoints.size() - 1);
-            if (Math.abs(p.getY() - last.get(0).getY()) < yThreshold) {
-                groupedPoints.get(groupedPoints.size() - 1).add(p);
+    // the first index whose value is >= key
+    static int lowerBound(float[] sorted, float key) {
+        int lo = 0, hi = sorted.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sorted[mid] < key) {
+                lo = mid + 1;
             } else {
-                groupedPoints.add(new ArrayList<>(Collections.singletonList(p)));
+                hi = mid;
             }
         }
+        return lo;
+    }
 
-        for (List<Point2D> group : groupedPoints) {
-            float avgLoc = 0;
-            for (Point2D p : group) {
-                avgLoc += p.getY();
-            }
-            avgLoc /= group.size();
-            for (Point2D p : group) {
-                p.setLocation(p.getX(), avgLoc);
+    // the first index whose value is > key
+    static int upperBound(float[] sorted, float key) {
+        int lo = 0, hi = sorted.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sorted[mid] <= key) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
             }
         }
-
-        // finally, modify lines
-        for (Map.Entry<Line2D.Float, Point2D[]> ltp : linesToPoints.entrySet()) {
-            Point2D[] p = ltp.getValue();
-            ltp.getKey().setLine(p[0], p[1]);
-        }
+        return lo;
     }
 
     public static BufferedImage pageConvertToImage(PDPage page, int dpi, ImageType imageType) throws IOException {
@@ -12,6 +12,15 @@ import java.util.*;
 public class SpreadsheetExtractionAlgorithm implements ExtractionAlgorithm {
     
     private static final float MAGIC_HEURISTIC_NUMBER = 0.65f;
+
+    // the spatial hash of findSpreadsheetsFromCells: 20 bits per bucket coordinate and 24 bits for the cell
+    private static final int BUCKET_SHIFT = 24;
+    private static final long CELL_MASK = (1L << BUCKET_SHIFT) - 1;
+    private static final int MAX_BUCKET = (1 << 20) - 1;
+    // the larger cells, like a frame around a page of small cells, are only looked up along their borders
+    private static final int MAX_BUCKETS_PER_CELL = 64;
+    private static final int MAX_ENTRIES = Integer.MAX_VALUE - 8;
+    private static final float TOUCHING_DISTANCE = 0.01f;
     
     private static final Comparator<Point2D> Y_FIRST_POINT_COMPARATOR = (point1, point2) -> {
         int compareY = compareRounded(point1.getY(), point2.getY());
@@ -29,6 +38,15 @@ public class SpreadsheetExtractionAlgorithm implements ExtractionAlgorithm {
         return compareX;
     };
 
+    // the exact order of the intersection points, by x then y
+    private static final Comparator<Point2D> X_THEN_Y_POINT_COMPARATOR = (point1, point2) -> {
+        if (point1.getX() > point2.getX()) return  1;
+        if (point1.getX() < point2.getX()) return -1;
+        if (point1.getY() > point2.getY()) return  1;
+        if (point1.getY() < point2.getY()) return -1;
+        return 0;
+    };
+
     private static int compareRounded(double d1, double d2) {
         float d1Rounded = Utils.round(d1, 2);
         float d2Rounded = Utils.round(d2, 2);
@@ -139,39 +157,45 @@ public class SpreadsheetExtractionAlgorithm implements ExtractionAlgorithm {
         Map<Point2D, Ruling[]> intersectionPoints = Ruling.findIntersections(horizontalRulingLines, verticalRulingLines);
         List<Point2D> intersectionPointsList = new ArrayList<>(intersectionPoints.keySet());
         intersectionPointsList.sort(Y_FIRST_POINT_COMPARATOR);
-        
-        for (int i = 0; i < intersectionPointsList.size(); i++) {
-            Point2D topLeft = intersectionPointsList.get(i);
-            Ruling[] hv = intersectionPoints.get(topLeft);
 
-            List<Point2D> xPoints = new ArrayList<>();
-            List<Point2D> yPoints = new ArrayList<>();
+        // the grid lines: the points are sorted by y then x in the map, and by x then y in the columns,
+        // so that the points on the right of a point, or below it, follow it in its row or column
+        Point2D[] rows = intersectionPoints.keySet().toArray(new Point2D[0]);
+        Point2D[] columns = rows.clone();
+        Arrays.sort(columns, X_THEN_Y_POINT_COMPARATOR);
+        Map<Point2D, Integer> rowIndices = new IdentityHashMap<>(rows.length);
+        Map<Point2D, Integer> columnIndices = new IdentityHashMap<>(columns.length);
+        for (int i = 0; i < rows.length; i++) {
+            rowIndices.put(rows[i], i);
+            columnIndices.put(columns[i], i);
+        }
+
+        for (Point2D topLeft : intersectionPointsList) {
+            Ruling[] hv = intersectionPoints.get(topLeft);
+            int row = rowIndices.get(topLeft);
+            int column = columnIndices.get(topLeft);
 
-            for (Point2D p: intersectionPointsList.subList(i, intersectionPointsList.size())) {
-                if (p.getX() == topLeft.getX() && p.getY() > topLeft.getY()) {
-                    xPoints.add(p);
-                }
-                if (p.getY() == topLeft.getY() && p.getX() > topLeft.getX()) {
-                    yPoints.add(p);
-                }
-            }
             outer:
-            for (Point2D xPoint: xPoints) {
+            for (int x = column + 1; x < columns.length && columns[x].getX() == topLeft.getX(); x++) {
+                Point2D xPoint = columns[x];
+                Ruling[] xHv = intersectionPoints.get(xPoint);
 
                 // is there a vertical edge b/w topLeft and xPoint?
-                if (!hv[1].equals(intersectionPoints.get(xPoint)[1])) {
+                if (!hv[1].equals(xHv[1])) {
                     continue;
                 }
-                for (Point2D yPoint: yPoints) {
+                for (int y = row + 1; y < rows.length && rows[y].getY() == topLeft.getY(); y++) {
+                    Point2D yPoint = rows[y];
+                    Ruling[] yHv = intersectionPoints.get(yPoint);
+
                     // is there an horizontal edge b/w topLeft and yPoint ?
-                    if (!hv[0].equals(intersectionPoints.get(yPoint)[0])) {
+                    if (!hv[0].equals(yHv[0])) {
                         continue;
                     }
                     Point2D btmRight = new Point2D.Float((float) yPoint.getX(), (float) xPoint.getY());
-                    if (intersectionPoints.containsKey(btmRight) 
-                            && intersectionPoints.get(btmRight)[0].equals(intersectionPoints.get(xPoint)[0])
-                            && intersectionPoints.get(btmRight)[1].equals(intersectionPoints.get(yPoint)[1])) {
-                            cellsFound.add(new Cell(topLeft, btmRight));
+                    Ruling[] btmRightHv = intersectionPoints.get(btmRight);
+                    if (btmRightHv != null && btmRightHv[0].equals(xHv[0]) && btmRightHv[1].equals(yHv[1])) {
+                        cellsFound.add(new Cell(topLeft, btmRight));
                         break outer;
                     }
                 }
@@ -185,142 +209,237 @@ public class SpreadsheetExtractionAlgorithm implements ExtractionAlgorithm {
         return cellsFound;
     }
     
+    /**
+     * Merges the cells whose borders meet into the grid-aligned bounding rectangles of the spreadsheets.
+     * The cells strictly inside of another cell, like a table drawn in a frame, make their own spreadsheet.
+     * <p>
+     * The cells are put into the buckets of a spatial hash that their bounds cover, so that the touching cells always
+     * share a bucket, and the cells that touch within a bucket are merged with a union-find. The buckets have the median
+     * size of the cells; the few cells that would cover too many of them are not hashed, but look up the hashed cells
+     * along their borders and compare to each other. The copies of a cell are merged with it before hashing.
+     *
+     * @return the rectangles, in the order of the first cell of each spreadsheet
+     */
     public static List<Rectangle> findSpreadsheetsFromCells(List<? extends Rectangle> cells) {
-        // via: http://stackoverflow.com/questions/13746284/merging-multiple-adjacent-rectangles-into-one-polygon
         List<Rectangle> rectangles = new ArrayList<>();
-        Set<Point2D> pointSet = new HashSet<>();
-        Map<Point2D, Point2D> edgesH = new HashMap<>();
-        Map<Point2D, Point2D> edgesV = new HashMap<>();
-        int i = 0;
-        
-        cells = new ArrayList<>(new HashSet<>(cells));
+        int count = cells.size();
+        if (count == 0) {
+            return rectangles;
+        }
+        if (count > CELL_MASK + 1) {
+            throw new IllegalArgumentException("Too many cells to find spreadsheets from: " + count);
+        }
 
-        Utils.sort(cells, Rectangle.ILL_DEFINED_ORDER);
+        int[] parents = new int[count];
+        for (int i = 0; i < count; i++) {
+            parents[i] = i;
+        }
 
-        for (Rectangle cell: cells) {
-            for(Point2D pt: cell.getPoints()) {
-                if (pointSet.contains(pt)) { // shared vertex, remove it
-                    pointSet.remove(pt);
-                }
-                else {
-                    pointSet.add(pt);
-                }
+        // the copies of a cell touch it and whatever it touches, so only the first one is hashed
+        boolean[] copies = new boolean[count];
+        Map<Long, Integer> firstCells = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            Integer first = firstCells.putIfAbsent(boundsKey(cells.get(i)), i);
+            if (first != null && sameBounds(cells.get(first), cells.get(i))) {
+                copies[i] = true;
+                union(parents, first, i);
             }
         }
-        
-        // X first sort
-        List<Point2D> pointsSortX = new ArrayList<>(pointSet);
-        pointsSortX.sort(X_FIRST_POINT_COMPARATOR);
-        // Y first sort
-        List<Point2D> pointsSortY = new ArrayList<>(pointSet);
-        pointsSortY.sort(Y_FIRST_POINT_COMPARATOR);
-        
-        while (i < pointSet.size()) {
-            float currY = (float) pointsSortY.get(i).getY();
-            while (i < pointSet.size() && Utils.feq(pointsSortY.get(i).getY(), currY)) {
-                edgesH.put(pointsSortY.get(i), pointsSortY.get(i+1));
-                edgesH.put(pointsSortY.get(i+1), pointsSortY.get(i));
-                i += 2;
-            }
+
+        // buckets of the median size of the cells
+        float minX = java.lang.Float.MAX_VALUE;
+        float minY = java.lang.Float.MAX_VALUE;
+        float[] widths = new float[count], heights = new float[count];
+        for (int i = 0; i < count; i++) {
+            Rectangle cell = cells.get(i);
+            minX = Math.min(minX, cell.getLeft());
+            minY = Math.min(minY, cell.getTop());
+            widths[i] = (float) cell.getWidth();
+            heights[i] = (float) cell.getHeight();
         }
-        
-        i = 0;
-        while (i < pointSet.size()) {
-            float currX = (float) pointsSortX.get(i).getX();
-            while (i < pointSet.size() && Utils.feq(pointsSortX.get(i).getX(), currX)) {
-                edgesV.put(pointsSortX.get(i), pointsSortX.get(i+1));
-                edgesV.put(pointsSortX.get(i+1), pointsSortX.get(i));
-                i += 2;
+        Arrays.sort(widths);
+        Arrays.sort(heights);
+        double bucketWidth = Math.max(widths[count / 2], 1);
+        double bucketHeight = Math.max(heights[count / 2], 1);
+
+        int[] fromX = new int[count], toX = new int[count], fromY = new int[count], toY = new int[count];
+        boolean[] oversized = new boolean[count];
+        int oversizedCount = 0;
+        long entries = 0;
+        for (int i = 0; i < count; i++) {
+            if (copies[i]) {
+                continue;
+            }
+            Rectangle cell = cells.get(i);
+            fromX[i] = bucket(cell.getLeft() - TOUCHING_DISTANCE - minX, bucketWidth);
+            toX[i] = bucket(cell.getRight() + TOUCHING_DISTANCE - minX, bucketWidth);
+            fromY[i] = bucket(cell.getTop() - TOUCHING_DISTANCE - minY, bucketHeight);
+            toY[i] = bucket(cell.getBottom() + TOUCHING_DISTANCE - minY, bucketHeight);
+            long buckets = (long) (toX[i] - fromX[i] + 1) * (toY[i] - fromY[i] + 1);
+            if (buckets > MAX_BUCKETS_PER_CELL) {
+                oversized[i] = true;
+                oversizedCount++;
+            } else {
+                entries += buckets;
             }
         }
-        
-        // Get all the polygons
-        List<List<PolygonVertex>> polygons = new ArrayList<>();
-        Point2D nextVertex;
-        while (!edgesH.isEmpty()) {
-            ArrayList<PolygonVertex> polygon = new ArrayList<>();
-            Point2D first = edgesH.keySet().iterator().next();
-            polygon.add(new PolygonVertex(first, Direction.HORIZONTAL));
-            edgesH.remove(first);
-            
-            while (true) {
-                PolygonVertex curr = polygon.get(polygon.size() - 1);
-                PolygonVertex lastAddedVertex;
-                if (curr.direction == Direction.HORIZONTAL) {
-                    nextVertex = edgesV.get(curr.point);
-                    edgesV.remove(curr.point);
-                    lastAddedVertex = new PolygonVertex(nextVertex, Direction.VERTICAL);
-                }
-                else {
-                    nextVertex = edgesH.get(curr.point);
-                    edgesH.remove(curr.point);
-                    lastAddedVertex = new PolygonVertex(nextVertex, Direction.HORIZONTAL);
+        if (entries > MAX_ENTRIES) {
+            throw new IllegalArgumentException("Too many cells to find spreadsheets from: " + count);
+        }
+
+        // the bucket in the high bits and the cell in the low bits, so that sorting groups the cells by bucket
+        long[] keys = new long[(int) entries];
+        int entry = 0;
+        for (int i = 0; i < count; i++) {
+            if (copies[i] || oversized[i]) {
+                continue;
+            }
+            for (int x = fromX[i]; x <= toX[i]; x++) {
+                for (int y = fromY[i]; y <= toY[i]; y++) {
+                    keys[entry++] = (long) x << (BUCKET_SHIFT + 20) | (long) y << BUCKET_SHIFT | i;
                 }
-                polygon.add(lastAddedVertex);
+            }
+        }
+        Arrays.sort(keys);
 
-                if (lastAddedVertex.equals(polygon.get(0))) {
-                    // closed polygon
-                    polygon.remove(polygon.size() - 1);
-                    break;
+        for (int start = 0, end; start < keys.length; start = end) {
+            end = start + 1;
+            while (end < keys.length && keys[end] >>> BUCKET_SHIFT == keys[start] >>> BUCKET_SHIFT) {
+                end++;
+            }
+            for (int i = start; i < end; i++) {
+                for (int j = i + 1; j < end; j++) {
+                    unionIfTouching(cells, parents, (int) (keys[i] & CELL_MASK), (int) (keys[j] & CELL_MASK));
                 }
             }
-            
-            for (PolygonVertex vertex: polygon) {
-                edgesH.remove(vertex.point);
-                edgesV.remove(vertex.point);
+        }
+        // a cell that touches a larger one reaches into a band along one of its borders,
+        // as it is neither strictly inside nor outside of it
+        int[] oversizedCells = new int[oversizedCount];
+        for (int i = 0, o = 0; i < count; i++) {
+            if (oversized[i]) {
+                oversizedCells[o++] = i;
             }
-            polygons.add(polygon);
         }
-        
-        // calculate grid-aligned minimum area rectangles for each found polygon
-        for(List<PolygonVertex> poly: polygons) {
-            float top = java.lang.Float.MAX_VALUE;
-            float left = java.lang.Float.MAX_VALUE;
-            float bottom = java.lang.Float.MIN_VALUE;
-            float right = java.lang.Float.MIN_VALUE;
-            for (PolygonVertex pt: poly) {
-                top = (float) Math.min(top, pt.point.getY());
-                left = (float) Math.min(left, pt.point.getX());
-                bottom = (float) Math.max(bottom, pt.point.getY());
-                right = (float) Math.max(right, pt.point.getX());
+        for (int o = 0; o < oversizedCount; o++) {
+            int i = oversizedCells[o];
+            Rectangle cell = cells.get(i);
+            int leftFrom = bucket(cell.getLeft() - TOUCHING_DISTANCE - minX, bucketWidth);
+            int leftTo = bucket(cell.getLeft() + TOUCHING_DISTANCE - minX, bucketWidth);
+            int rightFrom = bucket(cell.getRight() - TOUCHING_DISTANCE - minX, bucketWidth);
+            int topFrom = bucket(cell.getTop() - TOUCHING_DISTANCE - minY, bucketHeight);
+            int topTo = bucket(cell.getTop() + TOUCHING_DISTANCE - minY, bucketHeight);
+            int bottomFrom = bucket(cell.getBottom() - TOUCHING_DISTANCE - minY, bucketHeight);
+            unionIfTouching(cells, parents, keys, i, leftFrom, leftTo, fromY[i], toY[i]);
+            unionIfTouching(cells, parents, keys, i, rightFrom, toX[i], fromY[i], toY[i]);
+            unionIfTouching(cells, parents, keys, i, fromX[i], toX[i], topFrom, topTo);
+            unionIfTouching(cells, parents, keys, i, fromX[i], toX[i], bottomFrom, toY[i]);
+            // the pairs of oversized cells once
+            for (int p = o + 1; p < oversizedCount; p++) {
+                unionIfTouching(cells, parents, i, oversizedCells[p]);
             }
-            rectangles.add(new Rectangle(top, left, right - left, bottom - top));
         }
-        
+
+        // calculate grid-aligned minimum area rectangles for each group of cells, whose root is its first cell
+        float[] tops = new float[count], lefts = new float[count], bottoms = new float[count], rights = new float[count];
+        Arrays.fill(tops, java.lang.Float.MAX_VALUE);
+        Arrays.fill(lefts, java.lang.Float.MAX_VALUE);
+        Arrays.fill(bottoms, java.lang.Float.MIN_VALUE);
+        Arrays.fill(rights, java.lang.Float.MIN_VALUE);
+        for (int i = 0; i < count; i++) {
+            Rectangle cell = cells.get(i);
+            int root = find(parents, i);
+            tops[root] = Math.min(tops[root], cell.getTop());
+            lefts[root] = Math.min(lefts[root], cell.getLeft());
+            bottoms[root] = Math.max(bottoms[root], cell.getBottom());
+            rights[root] = Math.max(rights[root], cell.getRight());
+        }
+        for (int i = 0; i < count; i++) {
+            if (parents[i] == i) {
+                rectangles.add(new Rectangle(tops[i], lefts[i], rights[i] - lefts[i], bottoms[i] - tops[i]));
+            }
+        }
+
         return rectangles;
     }
 
-    private enum Direction {
-        HORIZONTAL,
-        VERTICAL
+    private static void unionIfTouching(List<? extends Rectangle> cells, int[] parents, int i, int j) {
+        if (find(parents, i) != find(parents, j) && touch(cells.get(i), cells.get(j))) {
+            union(parents, i, j);
+        }
     }
-    
-     static class PolygonVertex {
-        Point2D point;
-        Direction direction;
-        
-        public PolygonVertex(Point2D point, Direction direction) {
-            this.direction = direction;
-            this.point = point;
+
+    // with the hashed cells in the buckets from fromX, fromY to toX, toY: the buckets of a column are contiguous keys
+    private static void unionIfTouching(List<? extends Rectangle> cells, int[] parents, long[] keys, int i,
+                                        int fromX, int toX, int fromY, int toY) {
+        for (int x = fromX; x <= toX; x++) {
+            long from = (long) x << (BUCKET_SHIFT + 20) | (long) fromY << BUCKET_SHIFT;
+            long to = (long) x << (BUCKET_SHIFT + 20) | (long) toY << BUCKET_SHIFT | CELL_MASK;
+            for (int k = firstKey(keys, from); k < keys.length && keys[k] <= to; k++) {
+                unionIfTouching(cells, parents, i, (int) (keys[k] & CELL_MASK));
+            }
         }
-        
-        @Override
-        public boolean equals(Object other) {
-            if (this == other) 
-                return true;
-            if (!(other instanceof PolygonVertex))
-                return false;
-            return this.point.equals(((PolygonVertex) other).point);
+    }
+
+    // the index of the first key from the given one
+    private static int firstKey(long[] keys, long key) {
+        int low = 0, high = keys.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (keys[middle] < key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
         }
-        
-        @Override
-        public int hashCode() {
-            return this.point.hashCode();
+        return low;
+    }
+
+    private static long boundsKey(Rectangle cell) {
+        long key = java.lang.Float.floatToIntBits(cell.getTop());
+        key = key * 31 + java.lang.Float.floatToIntBits(cell.getLeft());
+        key = key * 31 + java.lang.Float.floatToIntBits(cell.getBottom());
+        return key * 31 + java.lang.Float.floatToIntBits(cell.getRight());
+    }
+
+    private static boolean sameBounds(Rectangle cell, Rectangle other) {
+        return cell.getTop() == other.getTop() && cell.getLeft() == other.getLeft()
+                && cell.getBottom() == other.getBottom() && cell.getRight() == other.getRight();
+    }
+
+    // the borders of the cells meet: a cell strictly inside of another one starts a new spreadsheet
+    private static boolean touch(Rectangle cell, Rectangle other) {
+        return cell.getLeft() - TOUCHING_DISTANCE < other.getRight() && other.getLeft() - TOUCHING_DISTANCE < cell.getRight()
+                && cell.getTop() - TOUCHING_DISTANCE < other.getBottom() && other.getTop() - TOUCHING_DISTANCE < cell.getBottom()
+                && !strictlyInside(cell, other) && !strictlyInside(other, cell);
+    }
+
+    private static boolean strictlyInside(Rectangle cell, Rectangle other) {
+        return cell.getLeft() - TOUCHING_DISTANCE > other.getLeft() && cell.getRight() + TOUCHING_DISTANCE < other.getRight()
+                && cell.getTop() - TOUCHING_DISTANCE > other.getTop() && cell.getBottom() + TOUCHING_DISTANCE < other.getBottom();
+    }
+
+    private static int bucket(double position, double bucketSize) {
+        // the buckets beyond the last one are merged into it, which only costs more comparisons
+        return (int) Math.min(Math.max(position, 0) / bucketSize, MAX_BUCKET);
+    }
+
+    private static int find(int[] parents, int i) {
+        while (parents[i] != i) {
+            parents[i] = parents[parents[i]];
+            i = parents[i];
         }
-        
-        @Override
-        public String toString() {
-            return String.format("%s[point=%s,direction=%s]", this.getClass().getName(), this.point.toString(), this.direction.toString());
+        return i;
+    }
+
+    // the root of a group is its first cell
+    private static void union(int[] parents, int i, int j) {
+        int rootI = find(parents, i);
+        int rootJ = find(parents, j);
+        if (rootI < rootJ) {
+            parents[rootJ] = rootI;
+        } else if (rootJ < rootI) {
+            parents[rootI] = rootJ;
         }
     }
 }
@@ -2,8 +2,11 @@ package technology.tabula;
 
 import static org.junit.Assert.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 
 import org.apache.commons.cli.CommandLine;
@@ -14,6 +17,9 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
 public class TestCommandLineApp {
 
     @Rule
@@ -66,6 +72,107 @@ public class TestCommandLineApp {
         assertArrayEquals(expectedCsv.getBytes(), Files.readAllBytes(csvPath));
     }
 
+    @Test
+    public void testExtractBatchConcurrentlyIsolatesBadFiles() throws ParseException, IOException {
+        String expectedCsv = UtilsForTesting.loadCsv("src/test/resources/technology/tabula/csv/spreadsheet_no_bounding_frame.csv");
+        File tmpFolder = folder.newFolder("tabula-java-concurrent-batch-test");
+
+        Path sourcePDF = FileSystems.getDefault().getPath("src/test/resources/technology/tabula/spreadsheet_no_bounding_frame.pdf");
+        for (int i = 0; i < 4; i++) {
+            Files.copy(sourcePDF, tmpFolder.toPath().resolve("spreadsheet" + i + ".pdf"));
+        }
+        Files.write(tmpFolder.toPath().resolve("broken.pdf"), "not a pdf".getBytes());
+
+        try {
+            this.csvFromCommandLineArgs(new String[]{
+                    "-b", tmpFolder.toString(),
+                    "--threads", "3",
+                    "-p", "1", "-a",
+                    "150.56,58.9,654.7,536.12", "-f",
+                    "CSV"
+            });
+            fail("the broken file should be reported");
+        } catch (ParseException e) {
+            assertTrue(e.getMessage().startsWith("Could not extract 1 of 5 files"));
+            assertTrue(e.getMessage().contains("broken.pdf"));
+        }
+
+        for (int i = 0; i < 4; i++) {
+            Path csvPath = tmpFolder.toPath().resolve("spreadsheet" + i + ".csv");
+            assertArrayEquals(expectedCsv.getBytes(), Files.readAllBytes(csvPath));
+        }
+    }
+
+    @Test(expected=org.apache.commons.cli.ParseException.class)
+    public void testWrongThreads() throws ParseException {
+        this.csvFromCommandLineArgs(new String[]{
+                "src/test/resources/technology/tabula/spreadsheet_no_bounding_frame.pdf",
+                "--threads", "0"
+        });
+    }
+
+    @Test
+    public void testWorkerAnswersEveryRequest() throws ParseException, IOException {
+        String expectedCsv = UtilsForTesting.loadCsv("src/test/resources/technology/tabula/csv/spreadsheet_no_bounding_frame.csv");
+        String expectedJson = this.csvFromCommandLineArgs(new String[]{
+                "src/test/resources/technology/tabula/spreadsheet_no_bounding_frame.pdf",
+                "-p", "1", "-a", "150.56,58.9,654.7,536.12", "-f", "JSON"
+        });
+
+        String requests = "{\"id\": 1, \"file\": \"src/test/resources/technology/tabula/spreadsheet_no_bounding_frame.pdf\", "
+                + "\"pages\": \"1\", \"area\": [\"150.56,58.9,654.7,536.12\"], \"format\": \"CSV\"}\n"
+                + "\n"
+                + "{\"id\": \"missing\", \"file\": \"src/test/resources/technology/tabula/missing.pdf\"}\n"
+                + "not json\n"
+                + "{\"id\": 3, \"file\": \"src/test/resources/technology/tabula/spreadsheet_no_bounding_frame.pdf\", "
+                + "\"pages\": 1, \"area\": \"150.56,58.9,654.7,536.12\", \"format\": \"JSON\", \"lattice\": false}\n";
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        new CommandLineWorker(new ByteArrayInputStream(requests.getBytes(StandardCharsets.UTF_8)), output).run();
+
+        String[] responses = output.toString("UTF-8").split("\n");
+        assertEquals(4, responses.length);
+
+        JsonObject csvResponse = JsonParser.parseString(responses[0]).getAsJsonObject();
+        assertEquals(1, csvResponse.get("id").getAsInt());
+        assertEquals(expectedCsv, csvResponse.get("output").getAsString());
+
+        JsonObject missingResponse = JsonParser.parseString(responses[1]).getAsJsonObject();
+        assertEquals("missing", missingResponse.get("id").getAsString());
+        assertEquals("File does not exist", missingResponse.get("error").getAsString());
+
+        assertTrue(JsonParser.parseString(responses[2]).getAsJsonObject().has("error"));
+
+        JsonObject jsonResponse = JsonParser.parseString(responses[3]).getAsJsonObject();
+        assertEquals(3, jsonResponse.get("id").getAsInt());
+        assertEquals(JsonParser.parseString(expectedJson), jsonResponse.get("tables"));
+    }
+
+    @Test
+    public void testWorkerRejectsOptionsOutsideOfTheResponse() throws IOException {
+        File outfile = new File(folder.getRoot(), "worker.csv");
+        String file = "\"file\": \"src/test/resources/technology/tabula/spreadsheet_no_bounding_frame.pdf\"";
+        String requests = "{\"id\": 1, " + file + ", \"outfile\": \"" + outfile.getAbsolutePath().replace("\\", "\\\\") + "\"}\n"
+                + "{\"id\": 2, " + file + ", \"out\": \"" + outfile.getAbsolutePath().replace("\\", "\\\\") + "\"}\n"
+                + "{\"id\": 3, \"batch\": \"src/test/resources/technology/tabula\"}\n"
+                + "{\"id\": 4, " + file + ", \"worker\": true}\n"
+                + "{\"id\": 5, " + file + ", \"pages\": \"1\"}\n";
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        new CommandLineWorker(new ByteArrayInputStream(requests.getBytes(StandardCharsets.UTF_8)), output).run();
+
+        String[] responses = output.toString("UTF-8").split("\n");
+        assertEquals(5, responses.length);
+        assertEquals("Option outfile is not supported by the worker",
+                JsonParser.parseString(responses[0]).getAsJsonObject().get("error").getAsString());
+        assertEquals("Option outfile is not supported by the worker",
+                JsonParser.parseString(responses[1]).getAsJsonObject().get("error").getAsString());
+        assertEquals("Option batch is not supported by the worker",
+                JsonParser.parseString(responses[2]).getAsJsonObject().get("error").getAsString());
+        assertEquals("Option worker is not supported by the worker",
+                JsonParser.parseString(responses[3]).getAsJsonObject().get("error").getAsString());
+        assertTrue(JsonParser.parseString(responses[4]).getAsJsonObject().has("output"));
+        assertFalse(outfile.exists());
+    }
+
     @Test
     public void testExtractSpreadsheetWithAreaAndNewFile() throws ParseException, IOException {
 
@@ -138,6 +245,39 @@ public class TestCommandLineApp {
         assertEquals("FLA Audit Profile,,,,,,,,,", s.split("\\r?\\n")[0]);
     }
 
+    @Test
+    public void testEncryptedPasswordSuppliedWithMaxMemory() throws ParseException {
+        String s = this.csvFromCommandLineArgs(new String[]{
+                "src/test/resources/technology/tabula/encrypted.pdf",
+                "-s", "userpassword",
+                "-p", "1",
+                "-m", "0",
+                "-f", "CSV"
+        });
+        assertEquals("FLA Audit Profile,,,,,,,,,", s.split("\\r?\\n")[0]);
+    }
+
+    @Test
+    public void testExtractSpreadsheetWithMaxMemory() throws ParseException, IOException {
+
+        String expectedCsv = UtilsForTesting.loadCsv("src/test/resources/technology/tabula/csv/spreadsheet_no_bounding_frame.csv");
+
+        assertEquals(expectedCsv, this.csvFromCommandLineArgs(new String[]{
+                "src/test/resources/technology/tabula/spreadsheet_no_bounding_frame.pdf",
+                "-p", "1", "-a",
+                "150.56,58.9,654.7,536.12", "-f",
+                "CSV", "--max-memory", "1"
+        }));
+    }
+
+    @Test(expected=org.apache.commons.cli.ParseException.class)
+    public void testWrongMaxMemory() throws ParseException {
+        this.csvFromCommandLineArgs(new String[]{
+                "src/test/resources/technology/tabula/spreadsheet_no_bounding_frame.pdf",
+                "-m", "lots"
+        });
+    }
+
     @Test(expected=org.apache.commons.cli.ParseException.class)
     public void testEncryptedWrongPassword() throws ParseException {
         String s = this.csvFromCommandLineArgs(new String[]{
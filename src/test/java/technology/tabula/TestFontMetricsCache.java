@@ -0,0 +1,41 @@
+package technology.tabula;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.junit.Test;
+
+public class TestFontMetricsCache {
+
+    @Test
+    public void testMetricsAreCachedPerFontObject() throws IOException {
+        FontMetricsCache cache = new FontMetricsCache();
+        FontMetrics metrics = cache.get(PDType1Font.HELVETICA);
+
+        assertSame(metrics, cache.get(PDType1Font.HELVETICA));
+        assertSame(metrics, cache.get(new PDType1Font(PDType1Font.HELVETICA.getCOSObject())));
+        assertEquals(FontMetrics.computeFontHeight(PDType1Font.HELVETICA), metrics.getHeight(), 0);
+        assertEquals(0.278f, metrics.getSpaceWidth(), 1e-6);
+        assertEquals(1, metrics.getVerticalWidthScale(), 0);
+    }
+
+    @Test
+    public void testStandard14MetricsOfOtherDocuments() throws IOException {
+        COSDictionary helvetica = new COSDictionary();
+        helvetica.setItem(COSName.TYPE, COSName.FONT);
+        helvetica.setItem(COSName.SUBTYPE, COSName.TYPE1);
+        helvetica.setName(COSName.BASE_FONT, "Helvetica");
+
+        FontMetrics metrics = new FontMetricsCache().get(PDType1Font.HELVETICA);
+        FontMetrics otherMetrics = new FontMetricsCache().get(new PDType1Font(helvetica));
+
+        assertNotSame(metrics, otherMetrics);
+        assertEquals(metrics.getHeight(), otherMetrics.getHeight(), 0);
+        assertEquals(metrics.getSpaceWidth(), otherMetrics.getSpaceWidth(), 0);
+    }
+
+}
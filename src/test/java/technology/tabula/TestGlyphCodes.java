@@ -0,0 +1,39 @@
+package technology.tabula;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class TestGlyphCodes {
+
+    @Test
+    public void testGlyphsOfACode() {
+        GlyphCodes codes = new GlyphCodes();
+
+        assertEquals("a", codes.get(97, "a").getText());
+        assertFalse(codes.get(97, "a").isBlank());
+        assertEquals(" ", codes.get(160, "\u00A0").getText());
+        assertTrue(codes.get(160, "\u00A0").isBlank());
+        assertFalse(codes.get(1, "\u0001").isPrintable());
+        assertFalse(codes.get(0xFFFD, "\uFFFD").isPrintable());
+        assertTrue(codes.get(0x1_0000, "\uD842\uDFB7").isPrintable());
+    }
+
+    @Test
+    public void testGlyphOfACodeIsComputedOnce() {
+        GlyphCodes codes = new GlyphCodes();
+
+        assertSame(codes.get(0x4E2D, "\u4E2D"), codes.get(0x4E2D, new String("\u4E2D")));
+    }
+
+    @Test
+    public void testGlyphOfACodeFollowsItsText() {
+        GlyphCodes codes = new GlyphCodes();
+        codes.get(101, "e");
+
+        // a diacritic merged into the glyph
+        assertEquals("e\u0301", codes.get(101, "e\u0301").getText());
+        assertEquals("e", codes.get(101, "e").getText());
+    }
+
+}
@@ -0,0 +1,82 @@
+package technology.tabula;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.junit.Test;
+
+public class TestGlyphStore {
+
+    @Test
+    public void testTextElementsOfGlyphs() {
+        GlyphStore glyphs = new GlyphStore();
+        glyphs.add(10, 20, 5, 8, PDType1Font.HELVETICA, 12, "a", 3, 0);
+        glyphs.add(10, 25, 6, 8, PDType1Font.TIMES_ROMAN, 11, "fi", 2.5f, 90);
+        glyphs.add(30, 40, 9, 9, null, 10, "\uD842\uDFB7", 4, 0);
+
+        assertEquals(3, glyphs.size());
+        assertEquals(new TextElement(10, 20, 5, 8, PDType1Font.HELVETICA, 12, "a", 3, 0), glyphs.getTextElement(0));
+        assertEquals(new TextElement(10, 25, 6, 8, PDType1Font.TIMES_ROMAN, 11, "fi", 2.5f, 90), glyphs.getTextElement(1));
+        assertEquals(new TextElement(30, 40, 9, 9, null, 10, "\uD842\uDFB7", 4, 0), glyphs.getTextElement(2));
+    }
+
+    @Test
+    public void testGlyphsOfTheSameCodePointShareTheirText() {
+        GlyphStore glyphs = new GlyphStore();
+        for (int i = 0; i < 1000; i++) {
+            glyphs.add(0, i * 5, 5, 8, i % 2 == 0 ? PDType1Font.HELVETICA : PDType1Font.COURIER, 12, new String("1"), 3, 0);
+        }
+
+        assertEquals(1000, glyphs.size());
+        assertSame(glyphs.getTextElement(0).getText(), glyphs.getTextElement(999).getText());
+        assertSame(PDType1Font.COURIER, glyphs.getTextElement(999).getFont());
+        assertEquals(4995, glyphs.getTextElement(999).getX(), 0);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testNoTextElementPastTheGlyphs() {
+        GlyphStore glyphs = new GlyphStore();
+        glyphs.add(0, 0, 5, 8, PDType1Font.HELVETICA, 12, "a", 3, 0);
+        glyphs.getTextElement(1);
+    }
+
+    @Test
+    public void testTextElementsAreCreatedOnce() {
+        GlyphStore glyphs = new GlyphStore();
+        glyphs.add(10, 20, 5, 8, PDType1Font.HELVETICA, 12, "a", 3, 0);
+        glyphs.add(10, 25, 6, 8, PDType1Font.HELVETICA, 12, "b", 3, 0);
+
+        TextElement first = glyphs.getTextElement(1);
+        assertSame(first, glyphs.getTextElement(1));
+        assertSame(first, glyphs.getTextElements().get(1));
+    }
+
+    @Test
+    public void testContainsLikeTheSpatialIndex() {
+        Random random = new Random(42);
+        GlyphStore glyphs = new GlyphStore();
+        RectangleSpatialIndex<TextElement> index = new RectangleSpatialIndex<>();
+        for (int i = 0; i < 2000; i++) {
+            glyphs.add(random.nextFloat() * 800, random.nextFloat() * 600, 1 + random.nextFloat() * 6, 4 + random.nextFloat() * 8,
+                    PDType1Font.HELVETICA, 12, String.valueOf((char) ('a' + random.nextInt(26))), 3, 0);
+            index.add(glyphs.getTextElement(i));
+        }
+
+        for (int i = 0; i < 100; i++) {
+            Rectangle area = new Rectangle(random.nextFloat() * 600, random.nextFloat() * 800, random.nextFloat() * 300, random.nextFloat() * 300);
+            List<TextElement> expected = new ArrayList<>();
+            index.contains(area, expected::add);
+            List<TextElement> actual = new ArrayList<>();
+            glyphs.contains(area, actual::add);
+            assertEquals(expected.size(), actual.size());
+            for (int j = 0; j < expected.size(); j++) {
+                assertSame(expected.get(j), actual.get(j));
+            }
+        }
+    }
+
+}
@@ -68,4 +68,41 @@ public class TestLine {
 		assertEquals("technology.tabula.Line[x=0.0,y=0.0,w=0.0,h=0.0,bottom=0.000000,right=0.000000,chunks='testtest', ]", line.toString());
 	}
 
+	@Test
+	public void testGroupByLines() {
+		List<TextChunk> textChunks = new ArrayList<>();
+		textChunks.add(chunk(0, 0, "a    b"));
+		textChunks.add(chunk(1, 60, "c"));
+		// a separator across the width of the chunks
+		textChunks.add(chunk(12, 0, "------"));
+		textChunks.add(chunk(12, 60, "-"));
+		textChunks.add(chunk(24, 10, "d"));
+		List<TextChunk> copy = new ArrayList<>(textChunks);
+
+		List<Line> lines = Line.groupByLines(textChunks);
+
+		assertEquals(copy, textChunks);
+		assertEquals(2, lines.size());
+		assertEquals(3, lines.get(0).getTextElements().size());
+		assertEquals("a", lines.get(0).getTextElements().get(0).getText());
+		assertEquals("c", lines.get(0).getTextElements().get(2).getText());
+		assertEquals(0, lines.get(0).getTop(), 0);
+		assertEquals(11, lines.get(0).getBottom(), 0);
+		assertEquals("d", lines.get(1).getTextElements().get(0).getText());
+	}
+
+	private static TextChunk chunk(float top, float left, String text) {
+		TextChunk textChunk = null;
+		for (int i = 0; i < text.length(); i++) {
+			TextElement textElement = new TextElement(top, left + i * 10, 10, 10, PDType1Font.HELVETICA, 10,
+					text.substring(i, i + 1), 3);
+			if (textChunk == null) {
+				textChunk = new TextChunk(textElement);
+			} else {
+				textChunk.add(textElement);
+			}
+		}
+		return textChunk;
+	}
+
 }
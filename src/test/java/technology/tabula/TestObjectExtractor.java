@@ -5,6 +5,7 @@ import static org.junit.Assert.*;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.apache.pdfbox.pdmodel.PDDocument;
@@ -142,6 +143,193 @@ public class TestObjectExtractor {
         }
     }
     
+    @Test
+    public void testParallelExtractionReturnsPagesInOrder() throws IOException {
+        File pdfFile = new File("src/test/resources/technology/tabula/us-017.pdf");
+        PDDocument pdf_document = PDDocument.load(pdfFile);
+        ObjectExtractor oe = new ObjectExtractor(pdf_document);
+
+        try (ParallelObjectExtractor poe = new ParallelObjectExtractor(pdfFile, 3)) {
+            assertEquals(pdf_document.getNumberOfPages(), poe.getNumberOfPages());
+
+            List<Page> pages = poe.extractAll();
+            assertEquals(poe.getNumberOfPages(), pages.size());
+
+            for (int i = 0; i < pages.size(); i++) {
+                Page expected = oe.extractPage(i + 1);
+                Page actual = pages.get(i);
+                assertEquals(i + 1, actual.getPageNumber());
+                assertEquals(expected.getText().toString(), actual.getText().toString());
+                assertEquals(expected.getRulings(), actual.getRulings());
+            }
+        } finally {
+            oe.close();
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testParallelExtractionOfWrongPageNumber() throws IOException {
+        File pdfFile = new File("src/test/resources/technology/tabula/S2MNCEbirdisland.pdf");
+        try (ParallelObjectExtractor poe = new ParallelObjectExtractor(pdfFile, 2)) {
+            poe.extract(Arrays.asList(1, 3));
+        }
+    }
+
+    @Test
+    public void testParallelExtractionAfterAFailedOne() throws IOException {
+        File pdfFile = new File("src/test/resources/technology/tabula/us-017.pdf");
+        try (ParallelObjectExtractor poe = new ParallelObjectExtractor(pdfFile, 2)) {
+            try {
+                poe.extract(Arrays.asList(1, 99, 2, 3));
+                fail("Page 99 should not be extracted");
+            } catch (IndexOutOfBoundsException e) {
+                // the workers and their documents are still usable
+            }
+
+            List<Page> pages = poe.extractAll();
+            assertEquals(poe.getNumberOfPages(), pages.size());
+            assertFalse(pages.get(0).getText().isEmpty());
+        }
+    }
+
+    @Test
+    public void testPrefetchingIteratorReturnsPagesInOrder() throws IOException {
+        try (PDDocument pdf_document = PDDocument.load(new File("src/test/resources/technology/tabula/us-017.pdf"))) {
+            ObjectExtractor oe = new ObjectExtractor(pdf_document);
+            List<String> expected = new ArrayList<>();
+            for (Integer pageNumber : oe.getPages()) {
+                expected.add(oe.extractPage(pageNumber).getText().toString());
+            }
+
+            for (int lookAhead = 0; lookAhead <= 3; lookAhead++) {
+                List<String> actual = new ArrayList<>();
+                try (PrefetchingPageIterator pi = new PrefetchingPageIterator(oe, oe.getPages(), lookAhead)) {
+                    while (pi.hasNext()) {
+                        actual.add(pi.nextPage().getText().toString());
+                    }
+                }
+                assertEquals(expected, actual);
+            }
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testPrefetchingIteratorOfWrongPageNumber() throws IOException {
+        try (PDDocument pdf_document = PDDocument.load(new File("src/test/resources/technology/tabula/S2MNCEbirdisland.pdf"));
+             PrefetchingPageIterator pi = new PrefetchingPageIterator(new ObjectExtractor(pdf_document), Arrays.asList(3, 1), 2)) {
+            pi.nextPage();
+        }
+    }
+
+    @Test
+    public void testLazyPageHasSameContentsAsExtractedPage() throws IOException {
+        try (PDDocument pdf_document = PDDocument.load(new File("src/test/resources/technology/tabula/us-017.pdf"))) {
+            ObjectExtractor oe = new ObjectExtractor(pdf_document);
+            for (Integer pageNumber : oe.getPages()) {
+                Page expected = oe.extractPage(pageNumber);
+                Page textFirst = oe.extractLazyPage(pageNumber);
+                Page rulingsFirst = oe.extractLazyPage(pageNumber);
+
+                assertEquals(expected.getText().toString(), textFirst.getText().toString());
+                assertEquals(expected.getRulings(), textFirst.getRulings());
+                assertEquals(expected.getRulings(), rulingsFirst.getRulings());
+                assertEquals(expected.getText().toString(), rulingsFirst.getText().toString());
+                assertEquals(expected.getMinCharWidth(), rulingsFirst.getMinCharWidth(), 0);
+                assertEquals(expected.getMinCharHeight(), rulingsFirst.getMinCharHeight(), 0);
+
+                Page expectedArea = expected.getArea(100, 50, 500, 550);
+                Page lazyArea = oe.extractLazyPage(pageNumber).getArea(100, 50, 500, 550);
+                assertEquals(expectedArea.getText().toString(), lazyArea.getText().toString());
+                assertEquals(expectedArea.getRulings(), lazyArea.getRulings());
+            }
+        }
+    }
+
+    @Test
+    public void testGetAreasMatchesGetArea() throws IOException {
+        try (PDDocument pdf_document = PDDocument.load(new File("src/test/resources/technology/tabula/us-017.pdf"))) {
+            ObjectExtractor oe = new ObjectExtractor(pdf_document);
+            List<Rectangle> areas = Arrays.asList(
+                    new Rectangle(100, 50, 450, 400),
+                    new Rectangle(300, 0, 612, 100),
+                    new Rectangle(100, 50, 450, 400),
+                    new Rectangle(0, 0, 10, 10));
+            for (Integer pageNumber : oe.getPages()) {
+                Page page = oe.extractPage(pageNumber);
+                List<Page> batch = oe.extractPage(pageNumber).getAreas(areas);
+
+                assertEquals(areas.size(), batch.size());
+                for (int i = 0; i < areas.size(); i++) {
+                    Page expected = page.getArea(areas.get(i));
+                    Page actual = batch.get(i);
+                    assertEquals(expected, actual);
+                    assertEquals(expected.getText().toString(), actual.getText().toString());
+                    assertEquals(expected.getUnprocessedRulings(), actual.getUnprocessedRulings());
+                    assertEquals(expected.getMinCharWidth(), actual.getMinCharWidth(), 0);
+                    assertEquals(expected.getMinCharHeight(), actual.getMinCharHeight(), 0);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testRulingAddedToLazyPageBeforeParsing() throws IOException {
+        try (PDDocument pdf_document = PDDocument.load(new File("src/test/resources/technology/tabula/us-017.pdf"))) {
+            ObjectExtractor oe = new ObjectExtractor(pdf_document);
+            Ruling ruling = new Ruling(0, 100, 0, 500);
+
+            Page expected = oe.extractPage(2);
+            expected.addRuling(ruling);
+            Page lazy = oe.extractLazyPage(2);
+            lazy.addRuling(ruling);
+
+            assertEquals(expected.getUnprocessedRulings(), lazy.getUnprocessedRulings());
+            assertEquals(expected.getRulings(), lazy.getRulings());
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testExtractLazyPageOfWrongPageNumber() throws IOException {
+        try (PDDocument pdf_document = PDDocument.load(new File("src/test/resources/technology/tabula/S2MNCEbirdisland.pdf"))) {
+            new ObjectExtractor(pdf_document).extractLazyPage(3);
+        }
+    }
+
+    @Test
+    public void testBoundedHeapExtraction() throws IOException {
+        File pdfFile = new File("src/test/resources/technology/tabula/us-017.pdf");
+        ObjectExtractor bounded = ObjectExtractor.load(pdfFile, null, 0);
+        try (PDDocument pdf_document = PDDocument.load(pdfFile)) {
+            ObjectExtractor oe = new ObjectExtractor(pdf_document);
+            for (Integer pageNumber : oe.getPages()) {
+                Page expected = oe.extractPage(pageNumber);
+                Page actual = bounded.extractPage(pageNumber);
+                assertEquals(expected.getText().toString(), actual.getText().toString());
+                assertEquals(expected.getRulings(), actual.getRulings());
+            }
+        } finally {
+            bounded.close();
+        }
+    }
+
+    @Test
+    public void testTextStripperCollectsSameTextAsExtractPage() throws IOException {
+        try (PDDocument pdf_document = PDDocument.load(new File("src/test/resources/technology/tabula/eu-002.pdf"))) {
+            ObjectExtractor oe = new ObjectExtractor(pdf_document);
+            Page page = oe.extractPage(1);
+
+            TextStripper stripper = new TextStripper(pdf_document, 1);
+            stripper.process();
+            List<TextElement> textElements = stripper.getTextElements();
+            Utils.sort(textElements, Rectangle.ILL_DEFINED_ORDER);
+
+            assertFalse(textElements.isEmpty());
+            assertEquals(page.getText(), textElements);
+            assertEquals(page.getMinCharWidth(), stripper.getMinCharWidth(), 0);
+            assertEquals(page.getMinCharHeight(), stripper.getMinCharHeight(), 0);
+        }
+    }
+
     /*
     @Test
     public void testExtractWithoutExtractingRulings() throws IOException {
@@ -2,6 +2,10 @@ package technology.tabula;
 
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
 import org.junit.Test;
 
 public class TestRectangleSpatialIndex {
@@ -18,4 +22,68 @@ public class TestRectangleSpatialIndex {
 
 	}
 
+	@Test
+	public void testQueriesMatchAllRectangles() {
+		Random random = new Random(42);
+		List<Rectangle> rectangles = new ArrayList<>();
+		RectangleSpatialIndex<Rectangle> rSpatialIndex = new RectangleSpatialIndex<>();
+		for (int i = 0; i < 5000; i++) {
+			Rectangle r = new Rectangle(random.nextInt(800), random.nextInt(600), random.nextInt(20), random.nextInt(10));
+			rectangles.add(r);
+			rSpatialIndex.add(r);
+		}
+
+		for (int i = 0; i < 100; i++) {
+			Rectangle area = new Rectangle(random.nextInt(800), random.nextInt(600), random.nextInt(200), random.nextInt(200));
+			List<Rectangle> intersecting = new ArrayList<>();
+			List<Rectangle> contained = new ArrayList<>();
+			for (Rectangle r : rectangles) {
+				if (r.getLeft() <= area.getRight() && r.getRight() >= area.getLeft()
+						&& r.getTop() <= area.getBottom() && r.getBottom() >= area.getTop()) {
+					intersecting.add(r);
+				}
+				if (area.contains(r)) {
+					contained.add(r);
+				}
+			}
+
+			List<Rectangle> result = rSpatialIndex.intersects(area);
+			assertEquals(intersecting.size(), result.size());
+			assertTrue(result.containsAll(intersecting));
+
+			result = rSpatialIndex.contains(area);
+			assertEquals(contained.size(), result.size());
+			assertTrue(result.containsAll(contained));
+		}
+	}
+
+	@Test
+	public void testVisitorSeesTheSameRectangles() {
+		RectangleSpatialIndex<Rectangle> rSpatialIndex = new RectangleSpatialIndex<>();
+		for (int i = 0; i < 100; i++) {
+			rSpatialIndex.add(new Rectangle(i, i, 1, 1));
+		}
+		Rectangle area = new Rectangle(10, 10, 20, 20);
+
+		List<Rectangle> visited = new ArrayList<>();
+		rSpatialIndex.contains(area, visited::add);
+		assertEquals(rSpatialIndex.contains(area).size(), visited.size());
+		assertTrue(visited.containsAll(rSpatialIndex.contains(area)));
+
+		visited.clear();
+		rSpatialIndex.intersects(area, visited::add);
+		assertEquals(rSpatialIndex.intersects(area), visited);
+	}
+
+	@Test
+	public void testAddAfterQuery() {
+		RectangleSpatialIndex<Rectangle> rSpatialIndex = new RectangleSpatialIndex<>();
+		Rectangle area = new Rectangle(0, 0, 100, 100);
+		assertTrue(rSpatialIndex.intersects(area).isEmpty());
+
+		Rectangle r = new Rectangle(10, 10, 10, 10);
+		rSpatialIndex.add(r);
+		assertEquals(r, rSpatialIndex.contains(area).get(0));
+	}
+
 }
@@ -2,6 +2,14 @@ package technology.tabula;
 
 import static org.junit.Assert.*;
 
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 import org.junit.Before;
 import org.junit.Test;
 
@@ -104,4 +112,59 @@ public class TestRuling {
 
 	}
 
+	@Test
+	public void testFindIntersectionsOfHorizontalsAtTheSameY() {
+		Ruling left = new Ruling(50, 0, 100, 0);
+		Ruling right = new Ruling(50, 103, 97, 0);
+		Ruling vertical = new Ruling(0, 150, 0, 100);
+
+		Map<Point2D, Ruling[]> intersections = Ruling.findIntersections(Arrays.asList(left, right), Arrays.asList(vertical));
+
+		assertEquals(1, intersections.size());
+		Ruling[] hv = intersections.get(new Point2D.Float(150, 50));
+		assertEquals(right.expand(2), hv[0]);
+		assertEquals(vertical.expand(2), hv[1]);
+	}
+
+	@Test
+	public void testFindIntersectionsOfGrid() {
+		List<Ruling> horizontals = new ArrayList<>();
+		List<Ruling> verticals = new ArrayList<>();
+		for (int i = 0; i < 30; i++) {
+			horizontals.add(new Ruling(i * 10, (i % 3) * 50, 100 + i * 5, 0));
+			verticals.add(new Ruling((i % 4) * 40, i * 9, 0, 80 + i * 3));
+		}
+
+		Map<Point2D, Ruling[]> intersections = Ruling.findIntersections(horizontals, verticals);
+
+		Set<Point2D> expected = new HashSet<>();
+		for (Ruling h : horizontals) {
+			for (Ruling v : verticals) {
+				Point2D p = h.intersectionPoint(v);
+				if (p != null) {
+					expected.add(p);
+				}
+			}
+		}
+		assertFalse(expected.isEmpty());
+		assertEquals(expected, new HashSet<>(intersections.keySet()));
+	}
+
+	@Test
+	public void testCollapseOrientedRulings() {
+		Ruling first = new Ruling(10, 0, 50, 0);
+		Ruling touching = new Ruling(10, 51, 29, 0);
+		Ruling apart = new Ruling(10, 90, 30, 0);
+		Ruling below = new Ruling(20, 0, 30, 0);
+
+		List<Ruling> collapsed = Ruling.collapseOrientedRulings(Arrays.asList(below, apart, touching, first));
+
+		assertEquals(3, collapsed.size());
+		assertSame(first, collapsed.get(0));
+		assertEquals(0, first.getLeft(), 0);
+		assertEquals(80, first.getRight(), 0);
+		assertSame(apart, collapsed.get(1));
+		assertSame(below, collapsed.get(2));
+	}
+
 }
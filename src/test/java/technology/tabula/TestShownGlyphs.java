@@ -0,0 +1,56 @@
+package technology.tabula;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class TestShownGlyphs {
+
+    @Test
+    public void testCopiesOfAGlyphAreNotAdded() {
+        ShownGlyphs glyphs = new ShownGlyphs();
+
+        assertTrue(glyphs.add("B", 100, 50, 2));
+        // fake bold, across a cell boundary
+        assertFalse(glyphs.add("B", 100.3f, 50.2f, 2));
+        assertFalse(glyphs.add("B", 98.5f, 51.9f, 2));
+        // another text, or too far away
+        assertTrue(glyphs.add("8", 100.3f, 50.2f, 2));
+        assertTrue(glyphs.add("B", 102.5f, 50, 2));
+        assertTrue(glyphs.add("ff", 100, 50, 2));
+        assertFalse(glyphs.add("ff", 101, 50, 2));
+    }
+
+    @Test
+    public void testToleranceIsHalfOpen() {
+        ShownGlyphs glyphs = new ShownGlyphs();
+        glyphs.add("a", 10, 10, 1);
+
+        // around the new glyph: [10, 12) holds the first one, [8, 10) doesn't
+        assertFalse(glyphs.add("a", 11, 10, 1));
+        assertTrue(glyphs.add("a", 9, 10, 1));
+        assertTrue(glyphs.add("a", 10, 10, 0));
+    }
+
+    @Test
+    public void testCopiesOfAWideGlyph() {
+        ShownGlyphs glyphs = new ShownGlyphs();
+        glyphs.add("\u2014", 10, 10, 1);
+
+        assertFalse(glyphs.add("\u2014", 500, 300, 1000));
+        assertFalse(glyphs.add("\u2014", 500, 300, Float.POSITIVE_INFINITY));
+    }
+
+    @Test
+    public void testClear() {
+        ShownGlyphs glyphs = new ShownGlyphs();
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(glyphs.add("a", i * 5, i % 7, 1));
+        }
+        glyphs.clear();
+
+        assertTrue(glyphs.add("a", 0, 0, 1));
+        assertFalse(glyphs.add("a", 0.5f, 0, 1));
+    }
+
+}
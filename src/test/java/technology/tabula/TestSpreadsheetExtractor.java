@@ -156,6 +156,31 @@ public class TestSpreadsheetExtractor {
         assertFalse(cells.get(0).intersects(cells.get(1)));
     }
 
+    @Test
+    public void testFindCellsOfGrid() {
+        List<Ruling> horizontals = new ArrayList<>();
+        List<Ruling> verticals = new ArrayList<>();
+        for (int row = 0; row <= 30; row++) {
+            horizontals.add(new Ruling(row * 10, 0, 400, 0));
+        }
+        for (int column = 0; column <= 20; column++) {
+            if (column == 1) {
+                // merges the first two cells of the first row
+                verticals.add(new Ruling(10, column * 20, 0, 290));
+            } else {
+                verticals.add(new Ruling(0, column * 20, 0, 300));
+            }
+        }
+
+        List<Cell> cells = SpreadsheetExtractionAlgorithm.findCells(horizontals, verticals);
+
+        assertEquals(30 * 20 - 1, cells.size());
+        assertEquals(new Cell(0, 0, 40, 10), cells.get(0));
+        assertEquals(new Cell(0, 40, 20, 10), cells.get(1));
+        assertEquals(new Cell(10, 0, 20, 10), cells.get(19));
+        assertEquals(new Cell(290, 380, 20, 10), cells.get(cells.size() - 1));
+    }
+
     @Test
     public void testFindSpreadsheetsFromCells() throws IOException {
 
@@ -180,6 +205,51 @@ public class TestSpreadsheetExtractor {
         assertTrue(foundRectangles.equals(expected));
     }
 
+    @Test
+    public void testFindSpreadsheetsFromTouchingAndNestedCells() {
+        List<Cell> cells = Arrays.asList(
+                // a 2x2 grid, with a gap below EPSILON and a duplicate
+                new Cell(0, 0, 10, 10), new Cell(0, 10.001f, 10, 10),
+                new Cell(10, 0, 10, 10), new Cell(10, 10, 10, 10), new Cell(10, 10, 10, 10),
+                // a cell touching the grid at a corner
+                new Cell(20, 20, 5, 5),
+                // a frame with a table inside of it
+                new Cell(100, 100, 200, 200),
+                new Cell(150, 150, 20, 20), new Cell(150, 170, 20, 20),
+                // a cell apart
+                new Cell(0, 500, 10, 10));
+
+        List<Rectangle> spreadsheets = SpreadsheetExtractionAlgorithm.findSpreadsheetsFromCells(cells);
+
+        assertEquals(Arrays.asList(
+                new Rectangle(0, 0, 25, 25),
+                new Rectangle(100, 100, 200, 200),
+                new Rectangle(150, 150, 40, 20),
+                new Rectangle(0, 500, 10, 10)), spreadsheets);
+    }
+
+    @Test
+    public void testFindSpreadsheetsFromTinyCellsInFrames() {
+        List<Cell> cells = new ArrayList<>();
+        // copies of a frame around the page, and a frame that starts at the corner of the grid
+        for (int i = 0; i < 50; i++) {
+            cells.add(new Cell(0, 0, 500, 500));
+        }
+        cells.add(new Cell(10, 10, 400, 400));
+        // a grid of cells of 1pt
+        for (int row = 0; row < 100; row++) {
+            for (int column = 0; column < 100; column++) {
+                cells.add(new Cell(10 + row, 10 + column, 1, 1));
+            }
+        }
+
+        List<Rectangle> spreadsheets = SpreadsheetExtractionAlgorithm.findSpreadsheetsFromCells(cells);
+
+        assertEquals(Arrays.asList(
+                new Rectangle(0, 0, 500, 500),
+                new Rectangle(10, 10, 400, 400)), spreadsheets);
+    }
+
     // TODO Add assertions
     @Test
     public void testSpreadsheetExtraction() throws IOException {
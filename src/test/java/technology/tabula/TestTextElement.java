@@ -1,5 +1,6 @@
 package technology.tabula;
 
+import java.awt.geom.Point2D;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -204,4 +205,64 @@ public class TestTextElement {
 	
 	
 
+	@Test
+	public void mergeWordsSplitByVerticalRulings() {
+		
+		List<TextElement> elements = new ArrayList<>();
+		String[] letters = {"A", "B", "C", "D", "E"};
+		for (int i = 0; i < letters.length; i++) {
+			elements.add(new TextElement(0f, i * 10f, 10f, 20f, PDType1Font.HELVETICA, 1f, letters[i], 1f, 6f));
+		}
+		List<Ruling> verticalRulings = new ArrayList<>();
+		// far below the text, then between B and C
+		verticalRulings.add(new Ruling(new Point2D.Float(35f, 100f), new Point2D.Float(35f, 200f)));
+		verticalRulings.add(new Ruling(new Point2D.Float(15f, 0f), new Point2D.Float(15f, 20f)));
+		
+		List<TextChunk> words = TextChunk.mergeWords(elements, verticalRulings);
+		
+		Assert.assertEquals(2, words.size());
+		Assert.assertEquals("AB", words.get(0).getText());
+		Assert.assertEquals("CDE", words.get(1).getText());
+		
+	}
+
+	@Test
+	public void wordMergerHandsOverWordsAsTheyComplete() {
+		
+		List<TextChunk> words = new ArrayList<>();
+		TextChunk.WordMerger merger = new TextChunk.WordMerger(new ArrayList<>(), words::add);
+		merger.add(new TextElement(0f, 0f, 10f, 20f, PDType1Font.HELVETICA, 1f, "A", 1f, 6f));
+		merger.add(new TextElement(0f, 10f, 10f, 20f, PDType1Font.HELVETICA, 1f, "B", 1f, 6f));
+		Assert.assertTrue(words.isEmpty());
+		
+		merger.add(new TextElement(40f, 0f, 10f, 20f, PDType1Font.HELVETICA, 1f, "C", 1f, 6f));
+		Assert.assertEquals(1, words.size());
+		Assert.assertEquals("AB", words.get(0).getText());
+		
+		merger.finish();
+		Assert.assertEquals(2, words.size());
+		Assert.assertEquals("C", words.get(1).getText());
+		
+	}
+
+	@Test
+	public void mergeWordsRegroupsOnlyRightToLeftWords() {
+		
+		List<TextElement> elements = new ArrayList<>();
+		elements.add(new TextElement(0f, 0f, 10f, 20f, PDType1Font.HELVETICA, 1f, "a", 1f, 6f));
+		elements.add(new TextElement(0f, 10f, 10f, 20f, PDType1Font.HELVETICA, 1f, "1", 1f, 6f));
+		elements.add(new TextElement(0f, 20f, 10f, 20f, PDType1Font.HELVETICA, 1f, ".", 1f, 6f));
+		// alef and bet, in the order they are drawn
+		elements.add(new TextElement(40f, 0f, 10f, 20f, PDType1Font.HELVETICA, 1f, "\u05D1", 1f, 6f));
+		elements.add(new TextElement(40f, 10f, 10f, 20f, PDType1Font.HELVETICA, 1f, "\u05D0", 1f, 6f));
+		
+		List<TextChunk> words = TextChunk.mergeWords(elements);
+		
+		Assert.assertEquals(2, words.size());
+		Assert.assertEquals("a1.", words.get(0).getText());
+		Assert.assertEquals(new Rectangle(0f, 0f, 30f, 20f), words.get(0));
+		Assert.assertEquals("\u05D0\u05D1", words.get(1).getText());
+		
+	}
+
 }
@@ -7,10 +7,13 @@ import static org.junit.Assert.assertNull;
 import java.awt.geom.Point2D;
 import java.io.File;
 import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Random;
 
 import org.apache.pdfbox.rendering.ImageType;
 import org.apache.commons.cli.ParseException;
@@ -54,6 +57,50 @@ public class TestUtils {
         assertEquals(r, shapes.get(0));
     }
 
+    @Test
+    public void testRoundHalfUpAsWritten() {
+        assertEquals(1.01f, Utils.round(1.005, 2), 0);
+        assertEquals(-1.01f, Utils.round(-1.005, 2), 0);
+        assertEquals(0.13f, Utils.round(0.125, 2), 0);
+        assertEquals(0.12f, Utils.round(0.1249999, 2), 0);
+        assertEquals(2.67f, Utils.round(2.675f, 2), 0);
+        assertEquals(0f, Utils.round(-0.001, 2), 0);
+        assertEquals(123457f, Utils.round(123456.5, 0), 0);
+        assertEquals(1e7f, Utils.round(9999999.996, 2), 0);
+    }
+
+    @Test
+    public void testRoundMatchesDecimalRounding() {
+        Random random = new Random(42);
+        for (int i = 0; i < 100000; i++) {
+            double d = i % 2 == 0 ? (random.nextDouble() - 0.5) * 2000 : (random.nextInt(200000) - 100000 + 0.5) / 1000;
+            float expected = new BigDecimal(Double.toString(d)).setScale(2, RoundingMode.HALF_UP).floatValue();
+            assertEquals(Double.toString(d), expected, Utils.round(d, 2), 0);
+        }
+    }
+
+    @Test
+    public void testSnapPoints() {
+        List<Ruling> rulings = Arrays.asList(
+                new Ruling(new Point2D.Float(0, 10), new Point2D.Float(100, 10)),
+                new Ruling(new Point2D.Float(0, 10.5f), new Point2D.Float(100, 10.5f)),
+                new Ruling(new Point2D.Float(0, 11), new Point2D.Float(100, 11)));
+
+        Utils.snapPoints(rulings, 1, 1);
+
+        // 11 is not within 1 of 10, the first y of the group
+        assertEquals(10.25f, rulings.get(0).getTop(), 0);
+        assertEquals(10.25f, rulings.get(0).getBottom(), 0);
+        assertEquals(10.25f, rulings.get(1).getTop(), 0);
+        assertEquals(10.25f, rulings.get(1).getBottom(), 0);
+        assertEquals(11f, rulings.get(2).getTop(), 0);
+        assertEquals(11f, rulings.get(2).getBottom(), 0);
+        for (Ruling ruling : rulings) {
+            assertEquals(0f, ruling.getLeft(), 0);
+            assertEquals(100f, ruling.getRight(), 0);
+        }
+    }
+
     @Test
     public void testParsePagesOption() throws ParseException {
 
@@ -120,6 +167,65 @@ public class TestUtils {
     	assertEquals(expectedNumbers, numbers);
     }
 
+    @Test
+    public void testSortInReadingOrderOfLines() {
+        Random random = new Random(21);
+        List<TextElement> glyphs = new ArrayList<>();
+        for (int line = 0; line < 40; line++) {
+            for (int i = 0; i < 50; i++) {
+                // superscripts and baselines that wobble a bit
+                float height = i % 7 == 0 ? 4 : 8;
+                float bottom = line * 12 + (i % 7 == 0 ? -3 : random.nextInt(3) * 0.1f);
+                glyphs.add(new TextElement(bottom - height, i * 5, 5, height, null, 8, "a", 2, 0));
+            }
+        }
+        Collections.shuffle(glyphs, random);
+        List<TextElement> expected = new ArrayList<>(glyphs);
+        Utils.sort(expected, Rectangle.ILL_DEFINED_ORDER);
+
+        Utils.sortInReadingOrder(glyphs);
+
+        assertEquals(expected, glyphs);
+        assertEquals(45, glyphs.get(9).getX(), 0);
+        // the superscript that starts the second line
+        assertEquals(0, glyphs.get(50).getX(), 0);
+        assertEquals(9, glyphs.get(50).getBottom(), 0);
+    }
+
+    @Test
+    public void testSortInReadingOrderOfStaggeredLines() {
+        // the middle line overlaps the lines above and below it, which don't overlap each other
+        List<TextElement> glyphs = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            glyphs.add(new TextElement(10, 20 * i, 5, 4, null, 7, "a", 2, 0));
+            glyphs.add(new TextElement(12.5f, 20 * i + 10, 5, 4, null, 7, "b", 2, 0));
+            glyphs.add(new TextElement(15, 20 * i + 5, 5, 4, null, 7, "c", 2, 0));
+        }
+        float[] tops = new float[glyphs.size()], bottoms = new float[glyphs.size()], xs = new float[glyphs.size()];
+        for (int i = 0; i < glyphs.size(); i++) {
+            tops[i] = glyphs.get(i).getTop();
+            bottoms[i] = glyphs.get(i).getBottom();
+            xs[i] = (float) glyphs.get(i).getX();
+        }
+        List<TextElement> expected = new ArrayList<>(glyphs);
+        Utils.sort(expected, Rectangle.ILL_DEFINED_ORDER);
+
+        Utils.sortInReadingOrder(glyphs);
+
+        assertNull(Utils.readingOrder(tops, bottoms, xs));
+        assertEquals(expected, glyphs);
+    }
+
+    @Test
+    public void testNoReadingOrderOfGlyphsAtTheSameX() {
+        float[] tops = {10, 10, 30};
+        float[] bottoms = {18, 18, 38};
+        float[] xs = {5, 5, 5};
+
+        assertNull(Utils.readingOrder(tops, bottoms, xs));
+        assertArrayEquals(new int[] {1, 0, 2}, Utils.readingOrder(tops, bottoms, new float[] {5, 1, 5}));
+    }
+
     @Test
     public void testJPEG2000DoesNotRaise() throws IOException {
         PDDocument pdf_document = PDDocument.load(new File("src/test/resources/technology/tabula/jpeg2000.pdf"));